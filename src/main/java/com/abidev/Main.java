@@ -3,16 +3,36 @@ package com.abidev;
 import com.abidev.framework.AbiFramework;
 import com.abidev.http.AbiHttpServer;
 
+import java.nio.file.Path;
+
 public class Main {
     public static void main(String[] args) throws Exception {
 
         AbiFramework framework = new AbiFramework();
 
+        // --snapshot=<file> reuses discovery across boots; --training exits after a training run
+        boolean training = false;
+        for (String arg : args) {
+            if (arg.startsWith("--snapshot=")) {
+                framework.setSnapshotFile(Path.of(arg.substring("--snapshot=".length())));
+            } else if (arg.equals("--training")) {
+                training = true;
+            }
+        }
+
         framework.scan("com.abidev");
 
         // Start HTTP server
         AbiHttpServer server = new AbiHttpServer(framework);
+        if (training) {
+            server.train(8080);
+            return;
+        }
         server.start(8080);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            framework.close();
+        }, "abi-shutdown"));
 
 //        System.out.println(framework.callRoute("/hello"));    // Output: Hello, World!
 //        System.out.println(framework.callRoute("/goodbye"));  // Output: Goodbye, World!
@@ -0,0 +1,46 @@
+package com.abidev.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caches the serialized responses of a GET route. A hit skips argument resolution, the
+ * controller and serialization; interceptors still run.
+ * <p>
+ * Entries are keyed by method, path and the listed query parameters and headers, so any
+ * input the response depends on must be listed. A route that reads anything else fails to
+ * register: a {@code @RequestParam} or {@code @RequestHeader} that is not listed, the request
+ * body or the {@code RequestContext}. Only 200 responses are cached, and never
+ * ones that set cookies or {@code Cache-Control: no-store}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cacheable {
+
+    /**
+     * @return how long an entry is served, in seconds
+     */
+    long ttlSeconds() default 60;
+
+    /**
+     * @return the maximum number of entries
+     */
+    int maxEntries() default 1000;
+
+    /**
+     * @return the maximum total size of the cached bodies in bytes
+     */
+    long maxBytes() default 16 * 1024 * 1024;
+
+    /**
+     * @return the query parameters that are part of the key
+     */
+    String[] queryParams() default {};
+
+    /**
+     * @return the request headers that are part of the key
+     */
+    String[] headers() default {};
+}
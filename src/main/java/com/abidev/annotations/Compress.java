@@ -0,0 +1,24 @@
+package com.abidev.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Overrides the server's response compression settings for a route.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Compress {
+
+    /**
+     * @return false to never compress this route's responses, even if compression is enabled globally
+     */
+    boolean value() default true;
+
+    /**
+     * @return the minimum body size in bytes to compress; negative uses the server setting
+     */
+    int minSize() default -1;
+}
@@ -0,0 +1,32 @@
+package com.abidev.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Lets a GET route answer 304 Not Modified without running the handler.
+ * <p>
+ * Names methods of the same controller that cheaply describe the current state of the
+ * resource. They take the same kinds of parameters as routes ({@code @PathVariable},
+ * {@code @RequestParam}, ...) and run after the interceptors; if the client's
+ * {@code If-None-Match} or {@code If-Modified-Since} shows its copy is current, the
+ * framework answers 304 right away. Otherwise the handler runs and the response carries
+ * the corresponding {@code ETag} and {@code Last-Modified} headers.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConditionalGet {
+
+    /**
+     * @return the name of a method returning the resource version (any object, used as the ETag)
+     */
+    String version() default "";
+
+    /**
+     * @return the name of a method returning the last modification time, as an
+     *         {@link java.time.Instant}, a {@link java.util.Date} or epoch milliseconds
+     */
+    String lastModified() default "";
+}
@@ -0,0 +1,20 @@
+package com.abidev.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Creates a singleton component on first use instead of during the scan. A component that an
+ * eagerly created one depends on is still created during the scan; inject it as a
+ * {@code Provider} to defer it too.
+ * <p>
+ * {@code @Lazy(false)} keeps a component eager when lazy initialization is enabled globally.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Lazy {
+
+    boolean value() default true;
+}
@@ -1,5 +1,7 @@
 package com.abidev.annotations;
 
+import com.abidev.http.HttpMethod;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -18,4 +20,30 @@ public @interface Route {
      * @return the URL path as a String
      */
     String value();
+
+    /**
+     * The HTTP methods the route answers. GET routes also answer HEAD, unless a HEAD route is
+     * declared for the same path.
+     *
+     * @return the methods; GET and POST by default
+     */
+    HttpMethod[] method() default {HttpMethod.GET, HttpMethod.POST};
+
+    /**
+     * Maximum request body size in bytes for this route. Larger requests are rejected with 413.
+     * A negative value uses the framework-wide default.
+     *
+     * @return the maximum body size in bytes
+     */
+    long maxBodySize() default -1;
+
+    /**
+     * For a route returning a {@link java.util.concurrent.CompletionStage}: how long the stage
+     * may take to complete, in milliseconds. Past that the request fails with a
+     * {@link java.util.concurrent.TimeoutException}, answered 503 unless an exception handler
+     * says otherwise. 0 waits forever; a negative value uses the framework-wide default.
+     *
+     * @return the timeout in milliseconds
+     */
+    long asyncTimeout() default -1;
 }
@@ -11,6 +11,8 @@ public @interface Scope {
 
     public static final String SINGLETON = "singleton";
     public static final String PROTOTYPE = "prototype";
+    /** One instance per request, cached on its RequestContext; inject it into singletons as a Provider */
+    public static final String REQUEST = "request";
 
     String value() default SINGLETON;
 }
@@ -5,22 +5,36 @@ import com.abidev.annotations.validation.NotNull;
 import com.abidev.annotations.validation.Size;
 import com.abidev.annotations.validation.Valid;
 import com.abidev.controllers.exception.UserNotFoundException;
+import com.abidev.framework.Provider;
+import com.abidev.http.HttpMethod;
 import com.abidev.http.ResponseEntity;
+import com.abidev.http.sse.SseEmitter;
+import com.abidev.services.ClockService;
 import com.abidev.services.MessageService;
 import com.abidev.services.RequestTimer;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
 @Component
 public class HelloController {
 
     private final MessageService messageService;
-    private final RequestTimer timer;
+    private final Provider<RequestTimer> timer;
+    private final ClockService clock;
 
-    public HelloController(MessageService messageService, RequestTimer requestTimer) {
+    public HelloController(MessageService messageService, Provider<RequestTimer> requestTimer, ClockService clock) {
         this.messageService = messageService;
         this.timer = requestTimer;
+        this.clock = clock;
     }
 
     @Route("/hello")
+    @Cacheable(ttlSeconds = 5)
     public String sayHello() {
         return messageService.getMessage();
     }
@@ -30,17 +44,31 @@ public class HelloController {
         return "Hello, " + name + "!";
     }
 
+    @Route(value = "/hello/{name}/later", asyncTimeout = 2000)
+    public CompletionStage<ResponseEntity<String>> greetLater(@PathVariable("name") String name) {
+        // Stands in for a downstream call: no server thread waits for it
+        return CompletableFuture.supplyAsync(() -> ResponseEntity.ok("Hello later, " + name + "!"),
+                CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS));
+    }
+
     @Route("/user/{id}")
     public String getUserById(@PathVariable("id") int id) {
         return "User ID: " + id;
     }
 
     @Route("/user/{id}/profile")
+    @Cacheable(ttlSeconds = 30, maxEntries = 10_000)
+    @ConditionalGet(version = "profileVersion")
     public String getUserProfile(@PathVariable("id") int id) {
         return "Profile for user ID: " + id;
     }
 
-    @Route("/user/create")
+    private String profileVersion(@PathVariable("id") int id) {
+        // Profiles never change in this demo; a real one would read a revision column
+        return "profile-" + id + "-1";
+    }
+
+    @Route(value = "/user/create", method = HttpMethod.POST, maxBodySize = 1024)
     public ResponseEntity<UserResponse> create(@RequestBody @Valid UserRequest body){
         UserResponse response = new UserResponse(
                 "success",
@@ -50,6 +78,11 @@ public class HelloController {
         return ResponseEntity.ok(response);
     }
 
+    @Route("/users")
+    public Stream<UserRequest> listUsers(@RequestParam(value = "count", defaultValue = "100") int count) {
+        return IntStream.range(0, count).mapToObj(i -> new UserRequest("user" + i, i % 100));
+    }
+
     @Route("/goodbye")
     public String sayGoodbye() {
         return "Goodbye, World!";
@@ -57,7 +90,12 @@ public class HelloController {
 
     @Route("/time")
     public String getRequestTime() {
-        return "Request timestamp: " + timer.getTimestamp();
+        return "Request timestamp: " + timer.get().getTimestamp();
+    }
+
+    @Route("/time/stream")
+    public SseEmitter streamTime() {
+        return clock.subscribe();
     }
 
     @Route("/admin")
@@ -65,12 +103,17 @@ public class HelloController {
         return "Welcome to the admin area!";
     }
 
+    public enum SortOrder { RELEVANCE, NEWEST }
+
     @Route("/search")
     public String search(
             @RequestParam("q") String query,
-            @RequestParam(defaultValue = "1") int page
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(value = "tag", required = false) List<String> tags,
+            @RequestParam(value = "sort", defaultValue = "relevance") SortOrder sort
     ) {
-        return "Searching '" + query + "' page " + page;
+        String tagged = tags.isEmpty() ? "" : " tagged " + String.join(", ", tags);
+        return "Searching '" + query + "'" + tagged + " page " + page + " by " + sort;
     }
 
     @Route("/debug")
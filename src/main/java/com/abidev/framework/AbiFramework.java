@@ -2,368 +2,765 @@ package com.abidev.framework;
 
 import com.abidev.annotations.*;
 import com.abidev.annotations.validation.Constraint;
+import com.abidev.framework.conversion.Converter;
+import com.abidev.framework.conversion.ConverterRegistry;
+import com.abidev.framework.routing.RouteMatch;
+import com.abidev.framework.routing.RouteTrie;
 import com.abidev.framework.validations.ConstraintValidator;
 import com.abidev.framework.validations.ValidatorRegistry;
 import com.abidev.helpers.RouteHandler;
 import com.abidev.http.HandlerResult;
+import com.abidev.http.HttpMethod;
+import com.abidev.http.ResourceVersion;
+import com.abidev.http.ResponseSerializer;
+import com.abidev.http.cache.CachedResponse;
+import com.abidev.http.cache.ResponseCache;
 import com.abidev.http.ResponseEntity;
+import com.abidev.http.StaticResourceHandler;
 import com.abidev.middleware.HandlerInterceptor;
 import com.abidev.middleware.RequestContext;
-import com.sun.net.httpserver.HttpExchange;
+import com.abidev.http.transport.ServerExchange;
 
-import java.io.File;
 import java.lang.reflect.*;
-import java.net.URL;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 public class AbiFramework {
 
-    private Map<Class<?>, Object> singletons = new HashMap<>();
-    private Set<Class<?>> prototypeBeans = new HashSet<>();
-    private Set<Class<?>> componentClasses = new HashSet<>();
-    private final Map<Class<?>, Boolean> prototypeGraphCache = new HashMap<>();
+    private final BeanContainer container = new BeanContainer();
 
-    private Map<String, RouteHandler> routes = new HashMap<>();
+    private final List<RouteHandler> routes = new ArrayList<>();
+    private Map<HttpMethod, RouteTrie<RouteHandler>> router = new EnumMap<>(HttpMethod.class);
     private final List<HandlerInterceptor> interceptors = new ArrayList<>();
 
     private final List<ExceptionHandlerMethod> exceptionHandlers = new ArrayList<>();
 
+    private final List<StaticResourceHandler> staticResources = new ArrayList<>();
 
+    private final ConverterRegistry converters = new ConverterRegistry();
 
-    public void scan(String packageName) throws Exception {
+    private long maxRequestBodySize = 10L * 1024 * 1024;
+    private long asyncTimeout = 30_000;
+
+    // The build-time index the last scan used, or null if it scanned the classpath
+    private ComponentIndex componentIndex;
+    private List<ClasspathScanner.RootScan> scannedRoots = List.of();
+
+    // Found during discovery, created once every component is known
+    private final List<Class<?>> adviceClasses = new ArrayList<>();
+    private final List<Class<?>> interceptorClasses = new ArrayList<>();
+
+    private final StartupTimeline timeline = new StartupTimeline();
+
+    // Where discovery is saved after a scan and read back on the next boot, or null
+    private Path snapshotFile;
+    // The snapshot the last scan used, or null if it discovered the classes itself
+    private StartupSnapshot snapshot;
+    private Map<Class<?>, List<Method>> snapshotRoutes = Map.of();
+    // What the last scan discovered, saved to the snapshot file
+    private final Map<String, Set<String>> discovered = new LinkedHashMap<>();
+    private final List<StartupSnapshot.Member> discoveredRoutes = new ArrayList<>();
 
-        String path = packageName.replace('.', '/');
-        URL packageURL = Thread.currentThread().getContextClassLoader().getResource(path);
 
-        if (packageURL == null) {
-            throw new RuntimeException("Package not found: " + packageName);
+    public void scan(String packageName) throws Exception {
+
+        timeline.reset();
+        discovered.clear();
+        discoveredRoutes.clear();
+        long phase = System.nanoTime();
+
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        String fingerprint = snapshotFile != null ? StartupSnapshot.classpathFingerprint() : null;
+        snapshot = fingerprint != null ? loadSnapshot(packageName, fingerprint, loader) : null;
+        componentIndex = snapshot == null ? ComponentIndex.load(loader) : null;
+        List<String> indexed = componentIndex != null ? componentIndex.classNames(packageName) : List.of();
+        scannedRoots = List.of();
+
+        if (snapshot != null) {
+            // Classes, constructors and route methods were resolved by loadSnapshot
+            for (String className : snapshot.kinds().keySet()) {
+                registerClass(Class.forName(className, false, loader));
+            }
+        } else if (!indexed.isEmpty()) {
+            // Only the indexed classes are loaded, without running their static initializers
+            for (String className : indexed) {
+                registerClass(Class.forName(className, false, loader));
+            }
+        } else {
+            componentIndex = null;
+
+            // No index (e.g. compiled without the processor): read the class files instead
+            ClasspathScanner scanner = new ClasspathScanner(
+                    List.of(Component.class, ControllerAdvice.class, Constraint.class),
+                    List.of(HandlerInterceptor.class));
+            ClasspathScanner.Result result = scanner.scan(packageName, loader);
+            scannedRoots = result.roots();
+
+            for (String className : result.classNames()) {
+                registerClass(Class.forName(className, false, loader));
+            }
         }
 
-        File folder = new File(packageURL.toURI());
+        timeline.record("scan", phase);
+        phase = System.nanoTime();
 
-        // Recursively scan the directory for classes
-        scanDirectory(folder, packageName);
+        // Create singleton instances, then publish the container for request threads
+        container.instantiateSingletons();
+        container.freeze();
 
-        // Create singleton instances
-        for (Class<?> clazz : new HashSet<>(componentClasses)) {
-            if (!prototypeBeans.contains(clazz) && !singletons.containsKey(clazz)) {
-                Object instance = createInstance(clazz);
-                singletons.put(clazz, instance);
+        // Needed by every request, so created now even if lazy
+        registerAdvices();
+        registerInterceptors();
+
+        // Application converters are components too; register them before routes pick theirs
+        for (Class<?> clazz : container.getComponentClasses()) {
+            if (Converter.class.isAssignableFrom(clazz) && !Modifier.isAbstract(clazz.getModifiers())) {
+                Converter<?> converter = (Converter<?>) getOrCreate(clazz);
+                converters.register(converter);
+                System.out.println("✔ Converter registered: " + clazz.getSimpleName()
+                        + " -> " + converter.targetType().getSimpleName());
             }
         }
 
+        timeline.record("instantiate", phase);
+        phase = System.nanoTime();
+
         // Register routes after dependencies have been injected
         registerRoutes();
 
+        timeline.record("routes", phase);
+
+        if (snapshotFile != null && snapshot == null) {
+            saveSnapshot(packageName, fingerprint);
+        }
+
         System.out.println("\n\n================= AbiFramework Scan Report ================");
         System.out.println("\tScanned package: " + packageName);
-        System.out.println("\tFound components: " + componentClasses.size());
-        System.out.println("\tSingleton instances: " + singletons.size());
-        System.out.println("\tPrototype beans: " + prototypeBeans.size());
+        System.out.println("\tDiscovery: " + (snapshot != null
+                ? "startup snapshot (" + snapshot.kinds().size() + " classes)"
+                : componentIndex != null
+                ? "component index (" + componentIndex.size() + " classes)"
+                : "classpath scan"));
+        for (ClasspathScanner.RootScan root : scannedRoots) {
+            System.out.printf("\t\t%s: %d classes, %d candidates, %.1f ms%n",
+                    root.root(), root.classes(), root.candidates(), root.nanos() / 1_000_000.0);
+        }
+        System.out.println("\tFound components: " + container.getComponentClasses().size());
+        System.out.println("\tSingleton instances: " + container.singletonCount());
+        for (BeanContainer.Creation creation : container.getCreations()) {
+            System.out.printf("\t\twave %d: %s %.2f ms%n", creation.wave(),
+                    creation.type().getSimpleName(), creation.nanos() / 1_000_000.0);
+        }
+        System.out.println("\tLazy beans not created yet: " + container.pendingLazyCount());
+        System.out.println("\tPrototype beans: " + container.prototypeCount());
+        System.out.println("\tRequest-scoped beans: " + container.requestScopedCount());
         System.out.println("\tRegistered routes: " + routes.size());
         System.out.println("\tRegistered interceptors: " + interceptors.size());
         System.out.println("\tRegistered exception handlers: " + exceptionHandlers.size());
         System.out.println("\tRegistered validators: " + ValidatorRegistry.all().size());
+        System.out.println("\tStartup timeline:");
+        timeline.print();
         System.out.println("============================================================\n\n");
     }
 
-    private void scanDirectory(File dir, String currentPackage) throws Exception {
-        File[] files = dir.listFiles();
-        if (files == null) return;
+    /**
+     * Registers a discovered class as a component, exception handler advice, validator
+     * and/or interceptor.
+     */
+    private void registerClass(Class<?> clazz) throws Exception {
+        if (clazz.isAnnotationPresent(Component.class)) {
+            // Singletons are created later in the scan method
+            container.register(clazz);
+            discovered(clazz, ComponentIndex.COMPONENT);
+        }
 
-        for (File file : files) {
-            if (file.isDirectory()) {
-                String subPackage = currentPackage + "." + file.getName();
-                scanDirectory(file, subPackage);
-            } else if (file.getName().endsWith(".class")) {
-                String className = currentPackage + "." + file.getName().replace(".class", "");
-                Class<?> clazz = Class.forName(className);
+        if (clazz.isAnnotationPresent(ControllerAdvice.class)) {
+            adviceClasses.add(clazz);
+            discovered(clazz, ComponentIndex.ADVICE);
+        }
 
-                if (clazz.isAnnotationPresent(Component.class)) {
-                    componentClasses.add(clazz);
-                    Scope scope = clazz.getAnnotation(Scope.class);
+        // Register validators
+        if (
+                clazz.isAnnotationPresent(Constraint.class)
+                        && ConstraintValidator.class.isAssignableFrom(clazz)
+        ) {
+            try {
+                ConstraintValidator<?> validator =
+                        (ConstraintValidator<?>) clazz
+                                .getDeclaredConstructor()
+                                .newInstance();
+
+                ValidatorRegistry.register(validator);
+                discovered(clazz, ComponentIndex.VALIDATOR);
+
+                System.out.println(
+                        "✔ Validator registered: " + clazz.getSimpleName()
+                );
+
+            } catch (Exception e) {
+                throw new RuntimeException(
+                        "Failed to register validator " + clazz.getName(), e
+                );
+            }
+        }
 
-                    if (scope == null || scope.value().equals(Scope.SINGLETON)) {
-                        // Only singleton by default
-                        // Handled later in the scan method
-                    } else if (scope.value().equals(Scope.PROTOTYPE)) {
-                        prototypeBeans.add(clazz);
-                    }
-                }
+        if (HandlerInterceptor.class.isAssignableFrom(clazz)
+                && !clazz.isInterface()
+                && !Modifier.isAbstract(clazz.getModifiers())) {
+            interceptorClasses.add(clazz);
+            discovered(clazz, ComponentIndex.INTERCEPTOR);
+        }
+    }
 
-                if (clazz.isAnnotationPresent(ControllerAdvice.class)) {
-                    Object instance = createInstance(clazz);
+    private void discovered(Class<?> clazz, String kind) {
+        discovered.computeIfAbsent(clazz.getName(), k -> new TreeSet<>()).add(kind);
+    }
 
-                    for (Method method : clazz.getDeclaredMethods()) {
-                        if (method.isAnnotationPresent(ExceptionHandler.class)) {
-                            ExceptionHandler eh = method.getAnnotation(ExceptionHandler.class);
-                            exceptionHandlers.add(new ExceptionHandlerMethod(
-                                    instance, method, List.of(eh.value()))
-                            );
-                        }
-                    }
-                }
+    /**
+     * Reads the snapshot file and resolves everything it names: classes, constructors and
+     * route methods. A snapshot naming something that no longer exists is ignored as a whole.
+     *
+     * @return the snapshot, or null if there is none for this package and classpath
+     */
+    private StartupSnapshot loadSnapshot(String packageName, String fingerprint, ClassLoader loader) {
+        try {
+            StartupSnapshot loaded = StartupSnapshot.load(snapshotFile, packageName, fingerprint);
+            if (loaded == null) {
+                return null;
+            }
+            for (String className : loaded.kinds().keySet()) {
+                Class.forName(className, false, loader);
+            }
+            Map<Class<?>, Constructor<?>> constructors = new HashMap<>();
+            for (StartupSnapshot.Member member : loaded.constructors()) {
+                Class<?> clazz = Class.forName(member.className(), false, loader);
+                constructors.put(clazz,
+                        clazz.getDeclaredConstructor(StartupSnapshot.types(member.parameterTypes(), loader)));
+            }
+            Map<Class<?>, List<Method>> methods = new HashMap<>();
+            for (StartupSnapshot.Member member : loaded.routes()) {
+                Class<?> clazz = Class.forName(member.className(), false, loader);
+                methods.computeIfAbsent(clazz, c -> new ArrayList<>()).add(
+                        clazz.getDeclaredMethod(member.name(), StartupSnapshot.types(member.parameterTypes(), loader)));
+            }
 
-                // Register validators
-                if (
-                        clazz.isAnnotationPresent(Constraint.class)
-                                && ConstraintValidator.class.isAssignableFrom(clazz)
-                ) {
-                    try {
-                        ConstraintValidator<?> validator =
-                                (ConstraintValidator<?>) clazz
-                                        .getDeclaredConstructor()
-                                        .newInstance();
+            // Everything resolved: only now does the snapshot replace discovery
+            constructors.forEach(container::useConstructor);
+            snapshotRoutes = methods;
+            return loaded;
+        } catch (Exception e) {
+            System.out.println("⚠ Ignoring startup snapshot " + snapshotFile + ": " + e);
+            return null;
+        }
+    }
 
-                        ValidatorRegistry.register(validator);
+    private void saveSnapshot(String packageName, String fingerprint) {
+        List<StartupSnapshot.Member> constructors = new ArrayList<>();
+        for (Class<?> clazz : container.getComponentClasses()) {
+            if (!clazz.isInterface() && !Modifier.isAbstract(clazz.getModifiers())) {
+                constructors.add(StartupSnapshot.member(container.constructor(clazz)));
+            }
+        }
+        try {
+            new StartupSnapshot(packageName, fingerprint, discovered, constructors, discoveredRoutes).save(snapshotFile);
+            System.out.println("✔ Startup snapshot written: " + snapshotFile);
+        } catch (Exception e) {
+            // The next boot discovers the classes again
+            System.out.println("⚠ Failed to write startup snapshot " + snapshotFile + ": " + e);
+        }
+    }
 
-                        System.out.println(
-                                "✔ Validator registered: " + clazz.getSimpleName()
-                        );
+    private void registerAdvices() throws Exception {
+        for (Class<?> clazz : adviceClasses) {
+            Object instance = container.getInstance(clazz);
 
-                    } catch (Exception e) {
-                        throw new RuntimeException(
-                                "Failed to register validator " + clazz.getName(), e
-                        );
-                    }
+            for (Method method : clazz.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(ExceptionHandler.class)) {
+                    ExceptionHandler eh = method.getAnnotation(ExceptionHandler.class);
+                    exceptionHandlers.add(new ExceptionHandlerMethod(
+                            instance, method, List.of(eh.value()))
+                    );
                 }
+            }
+        }
+        adviceClasses.clear();
+    }
 
-                if (HandlerInterceptor.class.isAssignableFrom(clazz)
-                        && !clazz.isInterface()
-                        && !Modifier.isAbstract(clazz.getModifiers())) {
+    private void registerInterceptors() throws Exception {
+        for (Class<?> clazz : interceptorClasses) {
+            HandlerInterceptor interceptor =
+                    (HandlerInterceptor) container.getInstance(clazz);
 
-                    HandlerInterceptor interceptor =
-                            (HandlerInterceptor) createInstance(clazz);
+            interceptors.add(interceptor);
+        }
+        interceptorClasses.clear();
+    }
 
-                    interceptors.add(interceptor);
+    /**
+     * Registers routes by scanning methods of registered components for the @Route annotation.
+     */
+    private void registerRoutes() {
+        for (Class<?> clazz : container.getComponentClasses()) {
+            if (componentIndex != null && !componentIndex.has(clazz, ComponentIndex.ROUTES)) {
+                // The index already tells which components declare routes
+                continue;
+            }
+            for (Method method : routeMethods(clazz)) {
+                Route route = method.getAnnotation(Route.class);
+                String pattern = route.value();
+
+                final Supplier<Object> supplier;
+                if (container.isRequestScoped(clazz)) {
+                    // Bound to the request by callRoute before the controller is needed
+                    supplier = () -> getOrCreate(clazz);
+                } else if (container.isPrototype(clazz) || container.hasPrototypeDependency(clazz)) {
+                    // A fresh graph per request, built by the factory linked at freeze time
+                    BeanFactory factory = container.factoryFor(clazz);
+                    supplier = () -> {
+                        try {
+                            return factory.create();
+                        } catch (Exception e) {
+                            throw new RuntimeException("Failed to create instance for route: " + pattern, e);
+                        }
+                    };
+                } else if (container.isLazy(clazz) && container.getSingleton(clazz) == null) {
+                    // Created by the first request; then a lock-free lookup in the container
+                    supplier = () -> getOrCreate(clazz);
+                } else {
+                    // Singletons exist once the container is frozen: no lookup per request
+                    Object instance = getOrCreate(clazz);
+                    supplier = () -> instance;
                 }
+
+                System.out.println("Registered route: " + Arrays.toString(route.method()) + " " + pattern
+                        + " -> " + clazz.getSimpleName() + "." + method.getName());
+                routes.add(new RouteHandler(supplier, method, pattern, route.maxBodySize(), route.method(), converters));
+                discovered(clazz, ComponentIndex.ROUTES);
+                discoveredRoutes.add(StartupSnapshot.member(method));
+            }
+        }
+
+        // Compile the routes once, indexed by method then path; callRoute only walks a trie
+        Map<HttpMethod, RouteTrie<RouteHandler>> tries = new EnumMap<>(HttpMethod.class);
+        for (RouteHandler handler : routes) {
+            for (HttpMethod method : handler.getMethods()) {
+                tries.computeIfAbsent(method, m -> new RouteTrie<>()).insert(handler.getPattern(), handler);
             }
         }
+        router = tries;
     }
 
-    private Object createInstance(Class<?> clazz) throws Exception {
-        return createInstance(clazz, false);
+    /**
+     * @return the {@code @Route} methods of a component, as recorded by the startup snapshot if
+     *         the scan used one
+     */
+    private List<Method> routeMethods(Class<?> clazz) {
+        if (snapshot != null) {
+            return snapshotRoutes.getOrDefault(clazz, List.of());
+        }
+        List<Method> methods = new ArrayList<>();
+        for (Method method : clazz.getDeclaredMethods()) {
+            if (method.isAnnotationPresent(Route.class)) {
+                methods.add(method);
+            }
+        }
+        return methods;
     }
 
-    private Object createInstance(Class<?> clazz, boolean forceNew) throws Exception {
+    /**
+     * Handles a request. For a route whose controller returned a CompletionStage, the result's
+     * body is a {@code CompletionStage<HandlerResult>} completing with the actual response.
+     */
+    public HandlerResult callRoute(String path, ServerExchange exchange) throws Exception {
 
-        // Prevent instantiation of interfaces and abstract classes, we don't manage them
-        if (clazz.isInterface() || java.lang.reflect.Modifier.isAbstract(clazz.getModifiers())) {
-            throw new RuntimeException("Cannot instantiate interface or abstract class: " + clazz.getName());
+        HttpMethod method = HttpMethod.resolve(exchange.getRequestMethod());
+        if (method == null) {
+            return new HandlerResult(
+                    501,
+                    Map.of(),
+                    "Not Implemented"
+            );
         }
 
-        // Check if the class is a singleton and already instantiated
-        if (!prototypeBeans.contains(clazz) && singletons.containsKey(clazz) && !forceNew) {
-            return singletons.get(clazz);
-        }
+        RouteMatch<RouteHandler> match = findRoute(method, path);
 
-        // Resolve constructor
-        Constructor<?> constructor = chooseConstructor(clazz);
-        Class<?>[] paramTypes = constructor.getParameterTypes();
-        Object[] args = new Object[paramTypes.length];
-        for (int i = 0; i < paramTypes.length; i++) {
-            Class<?> paramType = paramTypes[i];
-            args[i] = createInstance(paramType);
+        // =========================
+        // OPTIONS / 405
+        // =========================
+        // Answered from the route table alone: no interceptor or controller runs
+        if (match == null) {
+            String allow = allowedMethods(path);
+
+            if (method == HttpMethod.OPTIONS && allow != null) {
+                return new HandlerResult(
+                        204,
+                        Map.of("Allow", allow),
+                        null
+                );
+            }
+
+            if (allow != null) {
+                return new HandlerResult(
+                        405,
+                        Map.of("Allow", allow),
+                        "Method Not Allowed"
+                );
+            }
         }
 
-        Object instance = constructor.newInstance(args);
+        if (match != null) {
 
-        performFieldInjection(instance, clazz);
+            RouteHandler handler = match.value();
 
-        // If singleton, store the instance
-        if (!prototypeBeans.contains(clazz) && !forceNew) {
-            singletons.put(clazz, instance);
-        }
+            long maxBodySize = handler.getMaxBodySize() >= 0
+                    ? handler.getMaxBodySize()
+                    : maxRequestBodySize;
 
-        return instance;
-    }
+            // Reject oversized bodies before any interceptor or controller runs
+            if (declaredContentLength(exchange) > maxBodySize) {
+                return new HandlerResult(
+                        413,
+                        Map.of(),
+                        "Payload Too Large"
+                );
+            }
 
-    private Constructor<?> chooseConstructor(Class<?> clazz) {
-        Constructor<?>[] constructors = clazz.getDeclaredConstructors();
+            RequestContext ctx = handler.createContext(path, match.variables(), exchange, maxBodySize);
 
-        for (Constructor<?> c : constructors) {
-            if (c.getParameterCount() == 0) {
-                c.setAccessible(true);
-                return c;
+            // Request-scoped components are created on first use and cached on the context
+            RequestContext previous = RequestScope.bind(ctx);
+            try {
+                return handle(handler, ctx, method, path, exchange);
+            } finally {
+                RequestScope.restore(previous);
             }
         }
 
-        // If no default constructor, return the first one
-        Constructor<?> constructor = constructors[0];
-        constructor.setAccessible(true);
-        return constructor;
+        // =========================
+        // STATIC RESOURCES
+        // =========================
+        if (method == HttpMethod.GET || method == HttpMethod.HEAD) {
+            for (StaticResourceHandler resources : staticResources) {
+                if (resources.matches(path)) {
+                    HandlerResult result = resources.handle(path, exchange);
+                    if (result != null) {
+                        return result;
+                    }
+                }
+            }
+        }
+
+        // =========================
+        // NO ROUTE MATCHED
+        // =========================
+        return new HandlerResult(
+                404,
+                Map.of(),
+                "Not Found"
+        );
     }
 
     /**
-     * Performs field injection for the given instance and class.
-     * @param instance the object instance to inject dependencies into
-     * @param clazz the class of the object
-     * @throws IllegalAccessException if a field cannot be accessed
+     * Runs the interceptors, then the controller or the cache, for a matched route.
      */
-    private void performFieldInjection(Object instance, Class<?> clazz) throws IllegalAccessException {
-        for (Field field : clazz.getDeclaredFields()) {
-            if (field.isAnnotationPresent(Inject.class)) {
-                field.setAccessible(true);
-                Class<?> dependencyType = field.getType();
-                try {
-                    Object dependency = createInstance(dependencyType);
-                    field.set(instance, dependency);
-                } catch (Exception e) {
-                    throw new RuntimeException("Failed to inject field " + field.getName()
-                            + " on " + clazz.getName() + " -> " + e.getMessage(), e);
-                }
+    private HandlerResult handle(RouteHandler handler, RequestContext ctx, HttpMethod method,
+                                 String path, ServerExchange exchange) throws Exception {
+
+        // =========================
+        // PRE HANDLE
+        // =========================
+        for (HandlerInterceptor interceptor : interceptors) {
+            if (!interceptor.preHandle(ctx)) {
+                return new HandlerResult(
+                        403,
+                        Map.of(),
+                        "Forbidden"
+                );
             }
         }
-    }
 
-    private boolean hasPrototypeDependency(Class<?> clazz) {
-        return prototypeGraphCache.computeIfAbsent(clazz, this::scanPrototypeDeps);
-    }
+        HandlerResult result = null;
+        Exception error = null;
+
+        ResponseCache cache = handler.getCache();
+        String cacheKey = null;
 
-    private boolean scanPrototypeDeps(Class<?> clazz) {
         try {
-            Constructor<?> constructor = chooseConstructor(clazz);
-            for (Class<?> p : constructor.getParameterTypes()) {
-                if (prototypeBeans.contains(p)) {
-                    return true;
+            // =========================
+            // CONDITIONAL GET
+            // =========================
+            // Looked up once: a prototype controller must be the same for the validators and the handler
+            Object controller = null;
+            ResourceVersion version = null;
+            if ((method == HttpMethod.GET || method == HttpMethod.HEAD) && handler.isConditional()) {
+                controller = handler.getController();
+                version = handler.resourceVersion(controller, ctx);
+                if (version != null && version.isNotModified(exchange)) {
+                    // The client's copy is current: skip the controller and serialization
+                    result = new HandlerResult(304, version.headers(), null);
                 }
             }
-            for (Field field : clazz.getDeclaredFields()) {
-                if (field.isAnnotationPresent(Inject.class) && prototypeBeans.contains(field.getType())) {
-                    return true;
+
+            // =========================
+            // RESPONSE CACHE
+            // =========================
+            if (result == null && cache != null && (method == HttpMethod.GET || method == HttpMethod.HEAD)) {
+                // HEAD is served from the GET entries
+                cacheKey = cache.key("GET", path, ctx::getQueryParam, exchange);
+                CachedResponse cached = cache.get(cacheKey);
+                if (cached != null) {
+                    result = new HandlerResult(cached.status(), cached.headers(), cached.body());
                 }
             }
-        } catch (Exception ignored) {
-            return false;
+
+            // =========================
+            // CONTROLLER
+            // =========================
+            if (result == null) {
+                if (controller == null) {
+                    controller = handler.getController();
+                }
+                result = handler.invoke(controller, ctx);
+
+                if (result.body() instanceof CompletionStage<?> stage) {
+                    // The controller answers later: the rest of the request runs on completion
+                    return completeLater(handler, ctx, stage, version, cache, cacheKey);
+                }
+
+                result = finish(result, version, cache, cacheKey);
+            }
+
+        } catch (Exception ex) {
+            error = ex;
+        } catch (Error err) {
+            // Handled like a failed CompletionStage: the after-completion interceptors still run
+            error = new CompletionException(err);
         }
-        return false;
+
+        return complete(handler, ctx, result, error);
+    }
+
+    private static HandlerResult finish(HandlerResult result, ResourceVersion version,
+                                        ResponseCache cache, String cacheKey) {
+        if (version != null) {
+            result = withValidators(result, version);
+        }
+        if (cacheKey != null) {
+            result = storeInCache(cache, cacheKey, result);
+        }
+        return result;
     }
 
     /**
-     * Registers routes by scanning methods of registered components for the @Route annotation.
+     * Waits for a controller's CompletionStage without holding the request thread.
+     *
+     * @return a result whose body is a {@code CompletionStage<HandlerResult>}, completing with
+     *         the response once the controller's stage completed (or timed out) and the
+     *         interceptors and exception handlers ran
      */
-    private void registerRoutes() {
-        for (Class<?> clazz : componentClasses) {
-            for (var method : clazz.getDeclaredMethods()) {
-                if (method.isAnnotationPresent(Route.class)) {
-                    Route route = method.getAnnotation(Route.class);
-                    String pattern = route.value();
+    private HandlerResult completeLater(RouteHandler handler, RequestContext ctx, CompletionStage<?> stage,
+                                        ResourceVersion version, ResponseCache cache, String cacheKey) {
+
+        // A future of our own: the timeout must not complete the controller's future
+        CompletableFuture<Object> value = new CompletableFuture<>();
+        stage.whenComplete((completed, failure) -> {
+            if (failure != null) {
+                value.completeExceptionally(failure);
+            } else {
+                value.complete(completed);
+            }
+        });
 
-                    final Supplier<Object> supplier = () -> {
-                        try {
-                            if (prototypeBeans.contains(clazz) || hasPrototypeDependency(clazz)) {
-                                return createInstance(clazz, true);
-                            } else {
-                                if (!singletons.containsKey(clazz)) {
-                                    Object instance = createInstance(clazz);
-                                    singletons.put(clazz, instance);
-                                }
-
-                                return singletons.get(clazz);
-                            }
-                        } catch (Exception e) {
-                            throw new RuntimeException("Failed to create instance for route: " + pattern);
-                        }
-                    };
+        long timeout = handler.getAsyncTimeout() >= 0 ? handler.getAsyncTimeout() : asyncTimeout;
+        if (timeout > 0) {
+            value.orTimeout(timeout, TimeUnit.MILLISECONDS);
+        }
 
-                    System.out.println("Registered route: " + pattern + " -> " + clazz.getSimpleName() + "." + method.getName());
-                    routes.put(pattern, new RouteHandler(supplier, method, pattern));
+        CompletableFuture<HandlerResult> response = value.handle((completed, failure) -> {
+            // Runs on the thread that completed the stage: make the request's beans visible again
+            RequestContext previous = RequestScope.bind(ctx);
+            try {
+                HandlerResult result = null;
+                Exception error = null;
+                if (failure != null) {
+                    error = unwrap(failure);
+                } else {
+                    try {
+                        result = finish(handler.toResult(completed), version, cache, cacheKey);
+                    } catch (Exception ex) {
+                        error = ex;
+                    } catch (Error err) {
+                        error = new CompletionException(err);
+                    }
                 }
+                return complete(handler, ctx, result, error);
+            } catch (Exception ex) {
+                // An interceptor or exception handler failed: the server answers 500
+                throw new CompletionException(ex);
+            } finally {
+                RequestScope.restore(previous);
             }
-        }
-    }
+        });
 
-    public HandlerResult callRoute(String path, HttpExchange exchange) throws Exception {
+        // Status and headers come with the completed response
+        return new HandlerResult(200, Map.of(), response).withRoute(handler);
+    }
 
-        for (var entry : routes.entrySet()) {
+    private static Exception unwrap(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause()
+                : failure;
+        return cause instanceof Exception ex ? ex : new CompletionException(cause);
+    }
 
-            RouteHandler handler = entry.getValue();
+    /**
+     * Runs the post-handle and after-completion interceptors, and resolves the error if any.
+     */
+    private HandlerResult complete(RouteHandler handler, RequestContext ctx,
+                                   HandlerResult result, Exception error) throws Exception {
 
-            if (!handler.matches(path)) {
-                continue;
+        // =========================
+        // POST HANDLE
+        // =========================
+        if (error == null) {
+            for (HandlerInterceptor interceptor : interceptors) {
+                interceptor.postHandle(ctx, result);
             }
+        }
 
-            RequestContext ctx = handler.createContext(path, exchange);
+        // =========================
+        // AFTER COMPLETION
+        // =========================
+        for (HandlerInterceptor interceptor : interceptors) {
+            interceptor.afterCompletion(ctx, error);
+        }
 
-            // =========================
-            // PRE HANDLE
-            // =========================
-            for (HandlerInterceptor interceptor : interceptors) {
-                if (!interceptor.preHandle(ctx)) {
-                    return new HandlerResult(
-                            403,
-                            Map.of(),
-                            "Forbidden"
-                    );
-                }
-            }
+        if (error != null) {
+            return resolveException(error).withRoute(handler);
+        }
 
-            HandlerResult result = null;
-            Exception error = null;
+        return result.withRoute(handler);
+    }
 
-            try {
-                // =========================
-                // CONTROLLER
-                // =========================
-                result = handler.invoke(ctx);
+    /**
+     * Adds the ETag and Last-Modified of a {@link ConditionalGet} route to a successful
+     * response, unless the controller set its own.
+     */
+    private static HandlerResult withValidators(HandlerResult result, ResourceVersion version) {
+        if (result.status() != 200) {
+            return result;
+        }
 
-            } catch (Exception ex) {
-                if (ex instanceof InvocationTargetException ite
-                        && ite.getCause() instanceof Exception cause) {
-                    error = cause;
-                } else {
-                    error = ex;
-                }
-            }
+        Map<String, String> headers = new HashMap<>(result.headers() != null ? result.headers() : Map.of());
+        version.headers().forEach(headers::putIfAbsent);
+        return new HandlerResult(result.status(), headers, result.body());
+    }
 
-            // =========================
-            // POST HANDLE
-            // =========================
-            if (error == null) {
-                for (HandlerInterceptor interceptor : interceptors) {
-                    interceptor.postHandle(ctx, result);
-                }
-            }
+    /**
+     * Serializes a cacheable result and stores it.
+     *
+     * @return the result with the serialized body, or the original result if it can't be cached
+     */
+    private static HandlerResult storeInCache(ResponseCache cache, String key, HandlerResult result) {
+        if (result.status() != 200 || result.headers() == null || !ResponseSerializer.isBuffered(result.body())) {
+            return result;
+        }
 
-            // =========================
-            // AFTER COMPLETION
-            // =========================
-            for (HandlerInterceptor interceptor : interceptors) {
-                interceptor.afterCompletion(ctx, error);
+        Map<String, String> headers = new HashMap<>();
+        for (Map.Entry<String, String> header : result.headers().entrySet()) {
+            String name = header.getKey();
+            if (name.equalsIgnoreCase("Set-Cookie")
+                    || (name.equalsIgnoreCase("Cache-Control") && header.getValue().contains("no-store"))) {
+                return result;
             }
-
-            if (error != null) {
-                return resolveException(error);
+            if (name.equalsIgnoreCase("Content-Type")) {
+                name = "Content-Type";
             }
+            headers.put(name, header.getValue());
+        }
 
+        byte[] body;
+        try {
+            body = ResponseSerializer.serialize(result.body());
+        } catch (RuntimeException e) {
+            // Let the server report the serialization error
             return result;
         }
 
-        // =========================
-        // NO ROUTE MATCHED
-        // =========================
-        return new HandlerResult(
-                404,
-                Map.of(),
-                "Not Found"
-        );
+        if (result.body() != null) {
+            headers.putIfAbsent("Content-Type", ResponseSerializer.contentType(result.body()));
+        }
+
+        CachedResponse stored = cache.put(key, result.status(), headers, body);
+        return new HandlerResult(stored.status(), stored.headers(), stored.body());
     }
 
-    private HandlerResult resolveException(Exception ex) throws Exception {
+    /**
+     * Looks up the route for a method. HEAD falls back to the GET route.
+     */
+    private RouteMatch<RouteHandler> findRoute(HttpMethod method, String path) {
+        RouteTrie<RouteHandler> trie = router.get(method);
+        RouteMatch<RouteHandler> match = trie != null ? trie.match(path) : null;
+
+        if (match == null && method == HttpMethod.HEAD) {
+            return findRoute(HttpMethod.GET, path);
+        }
+        return match;
+    }
+
+    /**
+     * Computes the Allow header for a path.
+     *
+     * @return the methods any route answers for the path, or null if no route matches it
+     */
+    private String allowedMethods(String path) {
+        EnumSet<HttpMethod> allowed = EnumSet.noneOf(HttpMethod.class);
+
+        for (Map.Entry<HttpMethod, RouteTrie<RouteHandler>> entry : router.entrySet()) {
+            // "OPTIONS *" asks about the server as a whole
+            if (path.equals("*") || entry.getValue().match(path) != null) {
+                allowed.add(entry.getKey());
+            }
+        }
+
+        if (allowed.isEmpty()) {
+            return null;
+        }
+        if (allowed.contains(HttpMethod.GET)) {
+            allowed.add(HttpMethod.HEAD);
+        }
+        allowed.add(HttpMethod.OPTIONS);
+
+        StringJoiner joiner = new StringJoiner(", ");
+        allowed.forEach(m -> joiner.add(m.name()));
+        return joiner.toString();
+    }
 
-        // 🔥 Unwrap InvocationTargetException
-        Throwable actual = ex;
-        if (ex instanceof InvocationTargetException ite && ite.getCause() != null) {
-            actual = ite.getCause();
+    private static long declaredContentLength(ServerExchange exchange) {
+        String contentLength = exchange.getRequestHeader("Content-Length");
+        if (contentLength == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            return -1;
         }
+    }
+
+    private HandlerResult resolveException(Exception ex) throws Exception {
 
         // 1️⃣ @ExceptionHandler has priority
         for (ExceptionHandlerMethod handler : exceptionHandlers) {
 
-            if (handler.supports(actual)) {
+            if (handler.supports(ex)) {
 
-                Object result = handler.invoke(actual);
+                Object result = handler.invoke(ex);
 
                 if (result instanceof ResponseEntity<?> re) {
                     return new HandlerResult(
@@ -378,21 +775,15 @@ public class AbiFramework {
         }
 
         // 2️⃣ Automatic mapping
-        if (actual instanceof Exception actualEx) {
-
-            int status = DefaultExceptionResolver.resolveStatus(actualEx);
+        int status = DefaultExceptionResolver.resolveStatus(ex);
 
-            return new HandlerResult(
-                    status,
-                    Map.of(),
-                    actualEx.getMessage() != null
-                            ? actualEx.getMessage()
-                            : status + " Error"
-            );
-        }
-
-        // 3️⃣ Throwable --> Critical failure
-        throw new RuntimeException(actual);
+        return new HandlerResult(
+                status,
+                Map.of(),
+                ex.getMessage() != null
+                        ? ex.getMessage()
+                        : status + " Error"
+        );
     }
 
 
@@ -412,11 +803,18 @@ public class AbiFramework {
     }
 
     private Object instantiatePlainObject(Class<?> clazz) throws Exception {
-        Constructor<?> constructor = chooseConstructor(clazz);
-        constructor.setAccessible(true);
+        Constructor<?> constructor = BeanContainer.chooseConstructor(clazz);
         return constructor.newInstance();
     }
 
+    private Object getOrCreate(Class<?> clazz) {
+        try {
+            return container.getInstance(clazz);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create instance of " + clazz.getName(), e);
+        }
+    }
+
     /**
      * Retrieves a singleton instance of the specified class.
      *
@@ -424,7 +822,23 @@ public class AbiFramework {
      * @return an Optional containing the singleton instance if it exists, or empty if not found
      */
     public Optional<Object> getSingleton(Class<?> clazz) {
-        return Optional.ofNullable(singletons.get(clazz));
+        return Optional.ofNullable(container.getSingleton(clazz));
+    }
+
+    /**
+     * Closes the singletons that implement {@link AutoCloseable}, such as services running
+     * their own threads. Failures are logged and don't stop the others from closing.
+     */
+    public void close() {
+        for (Object singleton : container.getSingletons()) {
+            if (singleton instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    System.out.println("⚠ Failed to close " + singleton.getClass().getName() + ": " + e);
+                }
+            }
+        }
     }
 
     /**
@@ -433,10 +847,111 @@ public class AbiFramework {
      * @return a set of registered route patterns
      */
     public Set<String> getRoutes() {
-        return Collections.unmodifiableSet(routes.keySet());
+        Set<String> patterns = new LinkedHashSet<>();
+        routes.forEach(route -> patterns.add(route.getPattern()));
+        return Collections.unmodifiableSet(patterns);
+    }
+
+    /**
+     * @return the patterns of the routes answering an HTTP method
+     */
+    public Set<String> getRoutes(HttpMethod method) {
+        Set<String> patterns = new LinkedHashSet<>();
+        for (RouteHandler route : routes) {
+            if (Arrays.asList(route.getMethods()).contains(method)) {
+                patterns.add(route.getPattern());
+            }
+        }
+        return Collections.unmodifiableSet(patterns);
     }
 
     public void addInterceptor(HandlerInterceptor interceptor) {
         interceptors.add(interceptor);
     }
+
+    /**
+     * Serves the files of a directory under a URL prefix. Routes take precedence over static files.
+     *
+     * @param urlPrefix the URL prefix, e.g. {@code /assets}
+     * @param directory the directory to serve
+     */
+    public void addStaticResources(String urlPrefix, Path directory) {
+        addStaticResources(new StaticResourceHandler(urlPrefix, directory));
+    }
+
+    public void addStaticResources(StaticResourceHandler handler) {
+        staticResources.add(handler);
+        System.out.println("Registered static resources: " + handler.getUrlPrefix() + "/** -> " + handler.getDirectory());
+    }
+
+    /**
+     * @return the converters used for path variables, query params and headers; register
+     *         additional ones before {@link #scan(String)}, or declare them as components
+     */
+    public ConverterRegistry getConverters() {
+        return converters;
+    }
+
+    /**
+     * Sets the default maximum request body size, used by routes that don't declare
+     * {@link Route#maxBodySize()}.
+     *
+     * @param maxRequestBodySize the limit in bytes
+     */
+    public void setMaxRequestBodySize(long maxRequestBodySize) {
+        if (maxRequestBodySize < 0) {
+            throw new IllegalArgumentException("maxRequestBodySize must not be negative: " + maxRequestBodySize);
+        }
+        this.maxRequestBodySize = maxRequestBodySize;
+    }
+
+    public long getMaxRequestBodySize() {
+        return maxRequestBodySize;
+    }
+
+    /**
+     * Sets how long a route returning a CompletionStage may take to complete, for routes that
+     * don't declare {@link Route#asyncTimeout()}. 30 seconds by default.
+     *
+     * @param asyncTimeout the timeout in milliseconds; 0 waits forever
+     */
+    public void setAsyncTimeout(long asyncTimeout) {
+        if (asyncTimeout < 0) {
+            throw new IllegalArgumentException("asyncTimeout must not be negative: " + asyncTimeout);
+        }
+        this.asyncTimeout = asyncTimeout;
+    }
+
+    public long getAsyncTimeout() {
+        return asyncTimeout;
+    }
+
+    /**
+     * Makes singleton components lazy: each is created on first use instead of during
+     * {@link #scan(String)}, unless annotated {@code @Lazy(false)} or needed by an eager one.
+     * Interceptors, exception handler advices and converters are always created during the scan.
+     * Call before {@link #scan(String)}.
+     */
+    public void setLazyInitialization(boolean lazy) {
+        container.setLazyByDefault(lazy);
+    }
+
+    /**
+     * Saves what {@link #scan(String)} discovers to a file, and reads it back on later boots
+     * instead of discovering again, as long as the classpath has not changed. A snapshot that
+     * is stale, for another package or unreadable is ignored and rewritten. Call before
+     * {@link #scan(String)}.
+     *
+     * @param snapshotFile the snapshot file, outside the classpath; null to disable
+     */
+    public void setSnapshotFile(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * @return the duration of each startup phase so far
+     */
+    public StartupTimeline getStartupTimeline() {
+        return timeline;
+    }
 }
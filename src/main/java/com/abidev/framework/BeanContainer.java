@@ -0,0 +1,629 @@
+package com.abidev.framework;
+
+import com.abidev.annotations.Inject;
+import com.abidev.annotations.Lazy;
+import com.abidev.annotations.Scope;
+import com.abidev.middleware.RequestContext;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Creates and holds the application's components.
+ * <p>
+ * The container has two phases. While the application is scanned it is mutable and only
+ * used by the scanning thread. {@link #freeze()} then publishes an immutable view through a
+ * volatile field: request threads look singletons up in an immutable map, without locks,
+ * and build prototype graphs through {@link BeanFactory} instances linked at freeze time, so
+ * no reflection metadata is read per request. A singleton first needed at runtime (a
+ * {@link Lazy} component, or a class never registered nor referenced by a component) is
+ * created under a lock and published with a new copy of the view.
+ * <p>
+ * Request-scoped components are created once per request and cached on its
+ * {@link RequestContext}. Singletons reach them, and prototypes, through an injected
+ * {@link Provider}, so they are not rebuilt per request.
+ */
+class BeanContainer {
+
+    // =========================
+    // BUILD PHASE
+    // =========================
+    // Concurrent: a wave of singletons is created by several threads
+    private final Map<Class<?>, Object> singletons = new ConcurrentHashMap<>();
+    private final Set<Class<?>> prototypeBeans = new HashSet<>();
+    private final Set<Class<?>> requestBeans = new HashSet<>();
+    private final Set<Class<?>> componentClasses = new HashSet<>();
+    private final Map<Class<?>, BeanFactory> factories = new ConcurrentHashMap<>();
+    // The constructor each component is created with, chosen once
+    private final Map<Class<?>, Constructor<?>> constructors = new ConcurrentHashMap<>();
+    private final List<Creation> creations = Collections.synchronizedList(new ArrayList<>());
+    private boolean lazyByDefault;
+
+    // =========================
+    // RUNTIME VIEW
+    // =========================
+    private volatile View view;
+    // The lazy singletons being created by createLateSingleton, guarded by this
+    private final LinkedHashSet<Class<?>> creatingLate = new LinkedHashSet<>();
+
+    /**
+     * @param singletons     every singleton created so far
+     * @param prototypes     the prototype-scoped classes
+     * @param requestScoped  the request-scoped classes
+     * @param prototypeGraph per component: whether creating it involves a prototype
+     * @param factories      the linked factory of every concrete component
+     */
+    private record View(Map<Class<?>, Object> singletons,
+                        Set<Class<?>> prototypes,
+                        Set<Class<?>> requestScoped,
+                        Map<Class<?>, Boolean> prototypeGraph,
+                        Map<Class<?>, BeanFactory> factories) {
+    }
+
+    /**
+     * The creation of one singleton by {@link #instantiateSingletons()}.
+     *
+     * @param type  the singleton class
+     * @param wave  the wave it was created in, from 1; its dependencies were created in earlier waves
+     * @param nanos the time spent in its constructor and field injection
+     */
+    record Creation(Class<?> type, int wave, long nanos) {
+    }
+
+    /**
+     * Registers a {@code @Component} class with its scope. Build phase only.
+     */
+    void register(Class<?> clazz) {
+        componentClasses.add(clazz);
+        Scope scope = clazz.getAnnotation(Scope.class);
+        if (scope != null && scope.value().equals(Scope.PROTOTYPE)) {
+            prototypeBeans.add(clazz);
+        } else if (scope != null && scope.value().equals(Scope.REQUEST)) {
+            requestBeans.add(clazz);
+        }
+    }
+
+    /**
+     * Creates the component singletons that don't exist yet and are not lazy, and everything
+     * they depend on. Build phase only.
+     * <p>
+     * The constructor and {@code @Inject} dependencies form a graph, walked through prototypes
+     * (created along with the singleton that needs them) but not through {@link Provider}s,
+     * which are resolved later. A singleton's wave is one more than the highest wave among its
+     * dependencies; the singletons of a wave don't depend on each other and are created in
+     * parallel.
+     *
+     * @throws IllegalStateException if the dependencies form a cycle; the message gives the path
+     */
+    void instantiateSingletons() throws Exception {
+        Map<Class<?>, Integer> waves = new HashMap<>();
+        for (Class<?> clazz : componentClasses) {
+            if (!prototypeBeans.contains(clazz) && !requestBeans.contains(clazz) && !isLazy(clazz)
+                    && !singletons.containsKey(clazz)) {
+                wave(clazz, waves, new LinkedHashSet<>());
+            }
+        }
+
+        // Prototypes are only walked through; group the singletons by wave
+        Map<Integer, List<Class<?>>> byWave = new TreeMap<>();
+        waves.forEach((clazz, wave) -> {
+            if (!prototypeBeans.contains(clazz)) {
+                byWave.computeIfAbsent(wave, w -> new ArrayList<>()).add(clazz);
+            }
+        });
+
+        int largest = byWave.values().stream().mapToInt(List::size).max().orElse(0);
+        if (largest <= 1) {
+            for (Map.Entry<Integer, List<Class<?>>> wave : byWave.entrySet()) {
+                for (Class<?> clazz : wave.getValue()) {
+                    createSingleton(clazz, wave.getKey());
+                }
+            }
+            return;
+        }
+
+        // Constructors may block on warm-up I/O, so use more threads than cores
+        int threads = Math.min(largest, Math.max(4, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "abi-bean-init");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (Map.Entry<Integer, List<Class<?>>> wave : byWave.entrySet()) {
+                List<Future<?>> pending = new ArrayList<>();
+                for (Class<?> clazz : wave.getValue()) {
+                    pending.add(executor.submit(() -> createSingleton(clazz, wave.getKey())));
+                }
+                for (Future<?> future : pending) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof Exception cause) {
+                            throw cause;
+                        }
+                        throw (Error) e.getCause();
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Makes components without {@link Lazy} lazy ({@code true}) or eager ({@code false}).
+     * Build phase only.
+     */
+    void setLazyByDefault(boolean lazyByDefault) {
+        this.lazyByDefault = lazyByDefault;
+    }
+
+    boolean isLazy(Class<?> clazz) {
+        Lazy lazy = clazz.getAnnotation(Lazy.class);
+        return lazy != null ? lazy.value() : lazyByDefault && componentClasses.contains(clazz);
+    }
+
+    /**
+     * @return the lazy component singletons not created yet
+     */
+    int pendingLazyCount() {
+        View current = view;
+        Map<Class<?>, Object> created = current != null ? current.singletons() : singletons;
+        int count = 0;
+        for (Class<?> clazz : componentClasses) {
+            if (!prototypeBeans.contains(clazz) && !requestBeans.contains(clazz) && isLazy(clazz)
+                    && !created.containsKey(clazz)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the singletons created by {@link #instantiateSingletons()}, by wave then name
+     */
+    List<Creation> getCreations() {
+        List<Creation> sorted = new ArrayList<>(creations);
+        sorted.sort(Comparator.comparingInt(Creation::wave).thenComparing(c -> c.type().getName()));
+        return sorted;
+    }
+
+    /**
+     * Computes the wave of a class and of everything it depends on.
+     *
+     * @param path the classes being walked, to report a cycle
+     */
+    private int wave(Class<?> clazz, Map<Class<?>, Integer> waves, LinkedHashSet<Class<?>> path) {
+        Integer known = waves.get(clazz);
+        if (known != null) {
+            return known;
+        }
+        if (!path.add(clazz)) {
+            throw cycle(path, clazz);
+        }
+
+        int wave = 0;
+        for (Type type : factory(clazz).dependencyTypes()) {
+            Class<?> dependency = rawClass(type);
+            if (dependency == Provider.class || requestBeans.contains(dependency)
+                    || singletons.containsKey(dependency)) {
+                // Resolved later, or already there
+                continue;
+            }
+            wave = Math.max(wave, wave(dependency, waves, path));
+        }
+        path.remove(clazz);
+
+        if (!prototypeBeans.contains(clazz)) {
+            wave++;
+        }
+        waves.put(clazz, wave);
+        return wave;
+    }
+
+    /**
+     * Fails if creating a singleton injects a request-scoped component, itself or through the
+     * prototypes it creates, instead of a {@link Provider}.
+     */
+    private void checkRequestScope(Class<?> singleton, Class<?> clazz, Set<Class<?>> prototypes,
+                                   Set<Class<?>> requestScoped, Set<Class<?>> walked) {
+        for (Type type : factory(clazz).dependencyTypes()) {
+            Class<?> dependency = rawClass(type);
+            if (requestScoped.contains(dependency)) {
+                throw new IllegalStateException("Singleton " + singleton.getName() + " injects request-scoped "
+                        + dependency.getName() + "; inject a Provider<" + dependency.getSimpleName() + "> instead");
+            }
+            if (prototypes.contains(dependency) && walked.add(dependency)) {
+                checkRequestScope(singleton, dependency, prototypes, requestScoped, walked);
+            }
+        }
+    }
+
+    private static IllegalStateException cycle(Set<Class<?>> path, Class<?> clazz) {
+        List<String> cycle = new ArrayList<>();
+        boolean inCycle = false;
+        for (Class<?> step : path) {
+            inCycle |= step == clazz;
+            if (inCycle) {
+                cycle.add(step.getName());
+            }
+        }
+        cycle.add(clazz.getName());
+        return new IllegalStateException("Dependency cycle: " + String.join(" -> ", cycle)
+                + ". Inject one of them as a Provider to break it");
+    }
+
+    private Void createSingleton(Class<?> clazz, int wave) throws Exception {
+        long start = System.nanoTime();
+        Object instance = create(clazz);
+        long nanos = System.nanoTime() - start;
+        singletons.put(clazz, instance);
+        creations.add(new Creation(clazz, wave, nanos));
+        return null;
+    }
+
+    /**
+     * Ends the build phase: links the factory of every concrete component, so its singleton
+     * dependencies become constants and its prototype dependencies direct factory calls, then
+     * publishes the runtime view.
+     *
+     * @throws IllegalStateException if the dependencies of a lazy, prototype or request-scoped
+     *                               component form a cycle, or if a lazy singleton injects a
+     *                               request-scoped component directly
+     */
+    void freeze() {
+        View previous = view;
+        if (previous != null) {
+            // A later scan keeps the singletons created at runtime since the last freeze
+            previous.singletons().forEach(singletons::putIfAbsent);
+        }
+
+        // instantiateSingletons() only walked the eager singletons: check the rest before
+        // a cycle can recurse at runtime
+        Map<Class<?>, Integer> waves = new HashMap<>();
+        for (Class<?> clazz : componentClasses) {
+            if (!clazz.isInterface() && !Modifier.isAbstract(clazz.getModifiers()) && !singletons.containsKey(clazz)) {
+                wave(clazz, waves, new LinkedHashSet<>());
+            }
+        }
+
+        // Eager singletons fail to inject a request-scoped component at startup, when there is
+        // no request; a lazy one would keep the instance of the request that created it
+        for (Class<?> clazz : componentClasses) {
+            if (isLazy(clazz) && !prototypeBeans.contains(clazz) && !requestBeans.contains(clazz)
+                    && !singletons.containsKey(clazz)) {
+                checkRequestScope(clazz, clazz, prototypeBeans, requestBeans, new HashSet<>());
+            }
+        }
+
+        Map<Class<?>, Boolean> prototypeGraph = new HashMap<>();
+        Map<Class<?>, BeanFactory> linked = new HashMap<>();
+        for (Class<?> clazz : componentClasses) {
+            prototypeGraph.put(clazz, scanPrototypeDeps(clazz));
+            if (!clazz.isInterface() && !Modifier.isAbstract(clazz.getModifiers())) {
+                BeanFactory factory = factory(clazz);
+                factory.link(this::dependency);
+                linked.put(clazz, factory);
+            }
+        }
+
+        view = new View(Map.copyOf(singletons), Set.copyOf(prototypeBeans), Set.copyOf(requestBeans),
+                Map.copyOf(prototypeGraph), Map.copyOf(linked));
+    }
+
+    /**
+     * Returns the singleton instance of a class, creating it if needed, a new instance if the
+     * class is a prototype, or the instance of the current request if it is request-scoped.
+     */
+    Object getInstance(Class<?> clazz) throws Exception {
+        View current = view;
+        if (current != null) {
+            Object singleton = current.singletons().get(clazz);
+            if (singleton != null) {
+                return singleton;
+            }
+            if (current.prototypes().contains(clazz)) {
+                return current.factories().get(clazz).create();
+            }
+            if (current.requestScoped().contains(clazz)) {
+                return requestInstance(clazz);
+            }
+            return createLateSingleton(clazz);
+        }
+        return buildInstance(clazz);
+    }
+
+    private Object buildInstance(Class<?> clazz) throws Exception {
+        if (requestBeans.contains(clazz)) {
+            return requestInstance(clazz);
+        }
+
+        boolean prototype = prototypeBeans.contains(clazz);
+        if (!prototype) {
+            Object singleton = singletons.get(clazz);
+            if (singleton != null) {
+                return singleton;
+            }
+        }
+
+        Object instance = create(clazz);
+        if (!prototype) {
+            singletons.put(clazz, instance);
+        }
+        return instance;
+    }
+
+    /**
+     * @return the linked factory of a component, or, for any other class or before the
+     *         container is frozen, a factory resolving its dependencies on each call
+     */
+    BeanFactory factoryFor(Class<?> clazz) {
+        View current = view;
+        BeanFactory factory = current != null ? current.factories().get(clazz) : null;
+        if (factory == null) {
+            BeanFactory unlinked = BeanFactory.of(clazz);
+            unlinked.link(type -> () -> resolve(type));
+            return unlinked;
+        }
+        return factory;
+    }
+
+    /**
+     * @return the singleton of a class, or null if there is none
+     */
+    Object getSingleton(Class<?> clazz) {
+        View current = view;
+        return current != null ? current.singletons().get(clazz) : singletons.get(clazz);
+    }
+
+    boolean isPrototype(Class<?> clazz) {
+        View current = view;
+        return current != null ? current.prototypes().contains(clazz) : prototypeBeans.contains(clazz);
+    }
+
+    boolean isRequestScoped(Class<?> clazz) {
+        View current = view;
+        return current != null ? current.requestScoped().contains(clazz) : requestBeans.contains(clazz);
+    }
+
+    /**
+     * @return true if creating the class creates a prototype directly (constructor or
+     *         {@code @Inject} field), so a fresh instance is needed per use.
+     *         {@link Provider} dependencies don't count.
+     */
+    boolean hasPrototypeDependency(Class<?> clazz) {
+        View current = view;
+        Boolean cached = current != null ? current.prototypeGraph().get(clazz) : null;
+        return cached != null ? cached : scanPrototypeDeps(clazz);
+    }
+
+    Set<Class<?>> getComponentClasses() {
+        return componentClasses;
+    }
+
+    Collection<Object> getSingletons() {
+        View current = view;
+        return current != null ? current.singletons().values() : singletons.values();
+    }
+
+    int singletonCount() {
+        return getSingletons().size();
+    }
+
+    int prototypeCount() {
+        return prototypeBeans.size();
+    }
+
+    int requestScopedCount() {
+        return requestBeans.size();
+    }
+
+    private synchronized Object createLateSingleton(Class<?> clazz) throws Exception {
+        View current = view;
+        Object singleton = current.singletons().get(clazz);
+        if (singleton != null) {
+            return singleton;
+        }
+
+        if (current.factories().get(clazz) == null) {
+            // Not a component, so not checked by freeze()
+            checkRequestScope(clazz, clazz, current.prototypes(), current.requestScoped(), new HashSet<>());
+        }
+        if (!creatingLate.add(clazz)) {
+            throw cycle(creatingLate, clazz);
+        }
+        Object instance;
+        try {
+            // Lazy components have a linked factory; anything else is resolved reflectively
+            BeanFactory factory = current.factories().get(clazz);
+            instance = factory != null ? factory.create() : BeanFactory.of(clazz).create(this::resolve);
+        } finally {
+            creatingLate.remove(clazz);
+        }
+
+        // Creating it may have published other singletons (lazy dependencies): copy the latest view
+        View latest = view;
+        Map<Class<?>, Object> copy = new HashMap<>(latest.singletons());
+        copy.put(clazz, instance);
+        view = new View(Map.copyOf(copy), latest.prototypes(), latest.requestScoped(),
+                latest.prototypeGraph(), latest.factories());
+        return instance;
+    }
+
+    /**
+     * @return the instance of a request-scoped class for the request handled by this thread,
+     *         created on first use
+     */
+    private Object requestInstance(Class<?> clazz) throws Exception {
+        RequestContext ctx = RequestScope.current();
+        if (ctx == null) {
+            throw new IllegalStateException("No request in progress for request-scoped " + clazz.getName()
+                    + "; inject a Provider<" + clazz.getSimpleName() + "> instead");
+        }
+        Object instance = ctx.getScopedBean(clazz);
+        if (instance == null) {
+            instance = factoryFor(clazz).create();
+            ctx.setScopedBean(clazz, instance);
+        }
+        return instance;
+    }
+
+    private Object create(Class<?> clazz) throws Exception {
+        return factory(clazz).create(this::resolve);
+    }
+
+    /**
+     * Resolves a constructor parameter or field type: a {@link Provider} for
+     * {@code Provider<T>}, otherwise the instance of the class.
+     */
+    private Object resolve(Type type) throws Exception {
+        Class<?> clazz = rawClass(type);
+        return clazz == Provider.class ? provider(type) : getInstance(clazz);
+    }
+
+    private Provider<Object> provider(Type type) {
+        Class<?> target = providedType(type);
+        return () -> {
+            try {
+                return getInstance(target);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to provide " + target.getName() + " -> " + e.getMessage(), e);
+            }
+        };
+    }
+
+    private BeanFactory factory(Class<?> clazz) {
+        return factories.computeIfAbsent(clazz, c -> BeanFactory.of(c, constructor(c)));
+    }
+
+    /**
+     * Sets the constructor a component is created with, instead of letting
+     * {@link #chooseConstructor(Class)} pick one. Build phase only.
+     */
+    void useConstructor(Class<?> clazz, Constructor<?> constructor) {
+        constructors.put(clazz, constructor);
+    }
+
+    /**
+     * @return the constructor a concrete component is created with
+     */
+    Constructor<?> constructor(Class<?> clazz) {
+        return constructors.computeIfAbsent(clazz, BeanContainer::chooseConstructor);
+    }
+
+    /**
+     * Binds a dependency of a factory being linked: a provider, the factory of a prototype,
+     * the lookup of a request-scoped instance or of a lazy singleton, otherwise the singleton,
+     * created now if nothing has needed it yet.
+     */
+    private BeanFactory.Dependency dependency(Type genericType) {
+        Class<?> type = rawClass(genericType);
+        if (type == Provider.class) {
+            Provider<Object> provider = provider(genericType);
+            return () -> provider;
+        }
+        if (prototypeBeans.contains(type)) {
+            return factory(type)::create;
+        }
+        if (requestBeans.contains(type)) {
+            return () -> requestInstance(type);
+        }
+        if (isLazy(type) && !singletons.containsKey(type)) {
+            // Created by the first caller; later calls only read the published view
+            return () -> getInstance(type);
+        }
+        try {
+            Object singleton = buildInstance(type);
+            return () -> singleton;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create instance of " + type.getName() + " -> " + e.getMessage(), e);
+        }
+    }
+
+    private static Class<?> rawClass(Type type) {
+        if (type instanceof Class<?> clazz) {
+            return clazz;
+        }
+        if (type instanceof ParameterizedType parameterized) {
+            return (Class<?>) parameterized.getRawType();
+        }
+        throw new IllegalStateException("Unsupported dependency type: " + type.getTypeName());
+    }
+
+    private static Class<?> providedType(Type type) {
+        if (type instanceof ParameterizedType parameterized) {
+            Type argument = parameterized.getActualTypeArguments()[0];
+            if (argument instanceof Class<?> || argument instanceof ParameterizedType) {
+                return rawClass(argument);
+            }
+        }
+        throw new IllegalStateException("A Provider must name the component it provides: " + type.getTypeName());
+    }
+
+    /**
+     * @throws RuntimeException if the class is an interface or abstract
+     */
+    static Constructor<?> chooseConstructor(Class<?> clazz) {
+        // Prevent instantiation of interfaces and abstract classes, we don't manage them
+        if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers())) {
+            throw new RuntimeException("Cannot instantiate interface or abstract class: " + clazz.getName());
+        }
+
+        Constructor<?>[] constructors = clazz.getDeclaredConstructors();
+
+        for (Constructor<?> c : constructors) {
+            if (c.getParameterCount() == 0) {
+                c.setAccessible(true);
+                return c;
+            }
+        }
+
+        // If no default constructor, return the first one
+        Constructor<?> constructor = constructors[0];
+        constructor.setAccessible(true);
+        return constructor;
+    }
+
+    private boolean scanPrototypeDeps(Class<?> clazz) {
+        View current = view;
+        Set<Class<?>> prototypes = current != null ? current.prototypes() : prototypeBeans;
+        try {
+            Constructor<?> constructor = constructor(clazz);
+            for (Class<?> p : constructor.getParameterTypes()) {
+                if (prototypes.contains(p)) {
+                    return true;
+                }
+            }
+            for (Field field : clazz.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Inject.class) && prototypes.contains(field.getType())) {
+                    return true;
+                }
+            }
+        } catch (Exception ignored) {
+            return false;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,208 @@
+package com.abidev.framework;
+
+import com.abidev.annotations.Inject;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Creates instances of one class from metadata compiled once: the constructor and the
+ * {@code @Inject} field setters as {@link MethodHandle}s, and their dependency types.
+ * <p>
+ * Once {@link #link linked}, every dependency is either a constant (a singleton) or the
+ * factory of a prototype, so creating an object graph is a chain of direct calls with no
+ * constructor lookup, annotation scan or map access.
+ */
+final class BeanFactory {
+
+    /**
+     * Supplies one constructor argument or field value.
+     */
+    @FunctionalInterface
+    interface Dependency {
+        Object get() throws Exception;
+    }
+
+    /**
+     * Resolves a dependency type to an instance while the factory is not linked. The type is
+     * generic, so a {@link Provider} dependency carries the type it provides.
+     */
+    @FunctionalInterface
+    interface Resolver {
+        Object resolve(Type type) throws Exception;
+    }
+
+    private static final MethodType CONSTRUCTOR = MethodType.methodType(Object.class, Object[].class);
+    private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final Class<?> type;
+    private final MethodHandle constructor;
+    private final Type[] parameterTypes;
+    private final Field[] fields;
+    private final MethodHandle[] setters;
+
+    // Set by link(), read by create() on request threads after the container is frozen
+    private Dependency[] arguments;
+    private Dependency[] fieldValues;
+
+    private BeanFactory(Class<?> type, MethodHandle constructor, Type[] parameterTypes,
+                        Field[] fields, MethodHandle[] setters) {
+        this.type = type;
+        this.constructor = constructor;
+        this.parameterTypes = parameterTypes;
+        this.fields = fields;
+        this.setters = setters;
+    }
+
+    /**
+     * Compiles the factory of a class.
+     *
+     * @throws RuntimeException if the class is an interface or abstract
+     * @throws IllegalStateException if its constructor or an {@code @Inject} field is not accessible
+     */
+    static BeanFactory of(Class<?> clazz) {
+        return of(clazz, BeanContainer.chooseConstructor(clazz));
+    }
+
+    /**
+     * Compiles the factory of a class around a constructor already chosen, e.g. one recorded
+     * in a startup snapshot.
+     *
+     * @throws IllegalStateException if the constructor or an {@code @Inject} field is not accessible
+     */
+    static BeanFactory of(Class<?> clazz, Constructor<?> c) {
+        if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers())) {
+            throw new RuntimeException("Cannot instantiate interface or abstract class: " + clazz.getName());
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        c.setAccessible(true);
+        MethodHandle constructor;
+        try {
+            constructor = lookup.unreflectConstructor(c)
+                    .asSpreader(Object[].class, c.getParameterCount())
+                    .asType(CONSTRUCTOR);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access constructor of " + clazz.getName(), e);
+        }
+
+        List<Field> fields = new ArrayList<>();
+        List<MethodHandle> setters = new ArrayList<>();
+        for (Field field : clazz.getDeclaredFields()) {
+            if (field.isAnnotationPresent(Inject.class)) {
+                try {
+                    field.setAccessible(true);
+                    setters.add(lookup.unreflectSetter(field).asType(SETTER));
+                } catch (IllegalAccessException | RuntimeException e) {
+                    throw new IllegalStateException("Cannot inject field " + field.getName()
+                            + " on " + clazz.getName(), e);
+                }
+                fields.add(field);
+            }
+        }
+
+        // The generic signature leaves out implicit parameters, such as the outer instance
+        Type[] parameterTypes = c.getGenericParameterTypes();
+        if (parameterTypes.length != c.getParameterCount()) {
+            parameterTypes = c.getParameterTypes();
+        }
+
+        return new BeanFactory(clazz, constructor, parameterTypes,
+                fields.toArray(new Field[0]), setters.toArray(new MethodHandle[0]));
+    }
+
+    /**
+     * @return the constructor parameter types, then the {@code @Inject} field types
+     */
+    List<Type> dependencyTypes() {
+        List<Type> types = new ArrayList<>(List.of(parameterTypes));
+        for (Field field : fields) {
+            types.add(field.getGenericType());
+        }
+        return types;
+    }
+
+    /**
+     * Binds every dependency once. Called while the container is being frozen.
+     */
+    void link(Function<Type, Dependency> dependencies) {
+        Dependency[] args = new Dependency[parameterTypes.length];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = dependencies.apply(parameterTypes[i]);
+        }
+        Dependency[] values = new Dependency[fields.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = dependencies.apply(fields[i].getGenericType());
+        }
+        arguments = args;
+        fieldValues = values;
+    }
+
+    /**
+     * Creates an instance with the dependencies bound by {@link #link}.
+     */
+    Object create() throws Exception {
+        Dependency[] args = arguments;
+        Object[] values = args.length == 0 ? NO_ARGS : new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            values[i] = args[i].get();
+        }
+        Object instance = construct(values);
+        for (int i = 0; i < setters.length; i++) {
+            inject(i, instance, fieldValues[i].get());
+        }
+        return instance;
+    }
+
+    /**
+     * Creates an instance, resolving each dependency through the given resolver.
+     */
+    Object create(Resolver resolver) throws Exception {
+        Object[] values = parameterTypes.length == 0 ? NO_ARGS : new Object[parameterTypes.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = resolver.resolve(parameterTypes[i]);
+        }
+        Object instance = construct(values);
+        for (int i = 0; i < setters.length; i++) {
+            Object dependency;
+            try {
+                dependency = resolver.resolve(fields[i].getGenericType());
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to inject field " + fields[i].getName()
+                        + " on " + type.getName() + " -> " + e.getMessage(), e);
+            }
+            inject(i, instance, dependency);
+        }
+        return instance;
+    }
+
+    private Object construct(Object[] args) throws Exception {
+        try {
+            return (Object) constructor.invokeExact(args);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+
+    private void inject(int index, Object instance, Object dependency) {
+        try {
+            setters[index].invokeExact(instance, dependency);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.abidev.framework;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Finds the classes of a package that may be components, without loading them: every class
+ * file under each classpath root of the package (directory or jar) is read on a
+ * {@link ForkJoinPool} and only its constant pool and header are parsed.
+ * <p>
+ * A class is a candidate if its constant pool names one of the marker annotations (their
+ * descriptor, e.g. {@code Lcom/abidev/annotations/Component;}), or if it implements one of the
+ * marker interfaces, directly or through a superclass in the same package. Candidates are only
+ * a superset: the caller loads them and checks them with reflection.
+ */
+final class ClasspathScanner {
+
+    /**
+     * @param root       the directory or jar
+     * @param classes    the class files read
+     * @param candidates the classes that matched
+     * @param nanos      the time spent on the root
+     */
+    record RootScan(String root, int classes, int candidates, long nanos) {
+    }
+
+    /**
+     * @param classNames the candidate class names, sorted
+     * @param roots      one entry per classpath root, in classpath order
+     */
+    record Result(List<String> classNames, List<RootScan> roots) {
+    }
+
+    // What the header and constant pool of one class file tell
+    private record ClassInfo(String name, String superName, List<String> interfaces, boolean annotated) {
+    }
+
+    private record RootResult(String root, List<ClassInfo> classes, long nanos) {
+    }
+
+    private final List<byte[]> annotationDescriptors = new ArrayList<>();
+    private final Set<String> interfaceNames = new HashSet<>();
+
+    /**
+     * @param annotations the marker annotations
+     * @param interfaces  the marker interfaces
+     */
+    ClasspathScanner(List<Class<?>> annotations, List<Class<?>> interfaces) {
+        for (Class<?> annotation : annotations) {
+            annotationDescriptors.add(annotation.descriptorString().getBytes(StandardCharsets.UTF_8));
+        }
+        for (Class<?> type : interfaces) {
+            interfaceNames.add(internalName(type.getName()));
+        }
+    }
+
+    /**
+     * @return the candidates found in every root of the package on the class loader
+     * @throws RuntimeException if the package is not on the classpath
+     */
+    Result scan(String packageName, ClassLoader loader) throws IOException {
+        String path = packageName.replace('.', '/');
+        List<URL> urls = Collections.list(loader.getResources(path));
+        if (urls.isEmpty()) {
+            throw new RuntimeException("Package not found: " + packageName);
+        }
+
+        // Roots are scanned in parallel, and so are the class files of each root
+        List<RootResult> results = ForkJoinPool.commonPool().submit(() -> urls.parallelStream()
+                .map(url -> scanRoot(url, path))
+                .toList()).join();
+
+        Map<String, ClassInfo> all = new HashMap<>();
+        List<RootScan> roots = new ArrayList<>();
+        for (RootResult result : results) {
+            // Same class in two roots: the first one on the classpath wins, as for the class loader
+            result.classes().forEach(info -> all.putIfAbsent(info.name(), info));
+        }
+
+        Set<String> candidates = new TreeSet<>();
+        for (ClassInfo info : all.values()) {
+            if (info.annotated() || implementsMarker(info, all, new HashSet<>())) {
+                candidates.add(info.name().replace('/', '.'));
+            }
+        }
+
+        for (RootResult result : results) {
+            int matched = 0;
+            for (ClassInfo info : result.classes()) {
+                if (candidates.contains(info.name().replace('/', '.'))) {
+                    matched++;
+                }
+            }
+            roots.add(new RootScan(result.root(), result.classes().size(), matched, result.nanos()));
+        }
+
+        return new Result(List.copyOf(candidates), roots);
+    }
+
+    private RootResult scanRoot(URL url, String path) {
+        long start = System.nanoTime();
+        try {
+            List<ClassInfo> classes;
+            String root;
+            if ("jar".equals(url.getProtocol())) {
+                // jar:file:/app.jar!/com/abidev
+                String spec = url.getPath();
+                int separator = spec.indexOf("!/");
+                Path jar = Path.of(new URI(spec.substring(0, separator)));
+                root = jar.toString();
+                classes = scanJar(jar, path + "/");
+            } else {
+                Path dir = Path.of(url.toURI());
+                root = dir.toString();
+                classes = scanDirectory(dir);
+            }
+            return new RootResult(root, classes, System.nanoTime() - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to scan " + url, e);
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Unsupported classpath root: " + url, e);
+        }
+    }
+
+    private List<ClassInfo> scanDirectory(Path dir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            files = walk.filter(file -> isClassFile(file.getFileName().toString())).toList();
+        }
+        return files.parallelStream()
+                .map(file -> {
+                    try (InputStream in = Files.newInputStream(file)) {
+                        return read(in.readAllBytes());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to read " + file, e);
+                    }
+                })
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private List<ClassInfo> scanJar(Path jar, String prefix) throws IOException {
+        try (JarFile file = new JarFile(jar.toFile())) {
+            List<JarEntry> entries = file.stream()
+                    .filter(entry -> entry.getName().startsWith(prefix) && isClassFile(entry.getName()))
+                    .toList();
+            // JarFile can serve several entry streams at once
+            return entries.parallelStream()
+                    .map(entry -> {
+                        try (InputStream in = file.getInputStream(entry)) {
+                            return read(in.readAllBytes());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException("Failed to read " + entry.getName() + " in " + jar, e);
+                        }
+                    })
+                    .filter(Objects::nonNull)
+                    .toList();
+        }
+    }
+
+    private static boolean isClassFile(String name) {
+        return name.endsWith(".class") && !name.endsWith("module-info.class") && !name.endsWith("package-info.class");
+    }
+
+    /**
+     * Parses the constant pool, this class, the superclass and the interfaces of a class file.
+     *
+     * @return null if the stream is not a class file
+     */
+    private ClassInfo read(byte[] classFile) throws IOException {
+        // Parse from memory: the constant pool is read a byte or two at a time
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+        if (in.readInt() != 0xCAFEBABE) {
+            return null;
+        }
+        in.readUnsignedShort(); // minor
+        in.readUnsignedShort(); // major
+
+        int count = in.readUnsignedShort();
+        byte[][] utf8 = new byte[count][];
+        int[] classNameIndex = new int[count];
+        boolean annotated = false;
+
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1 -> { // Utf8
+                    byte[] bytes = new byte[in.readUnsignedShort()];
+                    in.readFully(bytes);
+                    utf8[i] = bytes;
+                    if (!annotated && bytes.length > 0 && bytes[0] == 'L') {
+                        annotated = isMarkerAnnotation(bytes);
+                    }
+                }
+                case 7 -> classNameIndex[i] = in.readUnsignedShort(); // Class
+                case 8, 16, 19, 20 -> in.skipBytes(2); // String, MethodType, Module, Package
+                case 15 -> in.skipBytes(3); // MethodHandle
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> in.skipBytes(4);
+                case 5, 6 -> { // Long and Double take two entries
+                    in.skipBytes(8);
+                    i++;
+                }
+                default -> throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        in.readUnsignedShort(); // access flags
+        String name = className(utf8, classNameIndex, in.readUnsignedShort());
+        String superName = className(utf8, classNameIndex, in.readUnsignedShort());
+        int interfaceCount = in.readUnsignedShort();
+        List<String> interfaces = new ArrayList<>(interfaceCount);
+        for (int i = 0; i < interfaceCount; i++) {
+            interfaces.add(className(utf8, classNameIndex, in.readUnsignedShort()));
+        }
+        return new ClassInfo(name, superName, interfaces, annotated);
+    }
+
+    private boolean isMarkerAnnotation(byte[] bytes) {
+        for (byte[] descriptor : annotationDescriptors) {
+            if (Arrays.equals(bytes, descriptor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String className(byte[][] utf8, int[] classNameIndex, int index) {
+        if (index == 0) {
+            return null; // java/lang/Object has no superclass
+        }
+        return new String(utf8[classNameIndex[index]], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Follows superclasses and superinterfaces within the scanned classes. Types outside the
+     * package (e.g. JDK classes) are not read, so only marker interfaces reached through the
+     * package are found.
+     */
+    private boolean implementsMarker(ClassInfo info, Map<String, ClassInfo> all, Set<String> visited) {
+        if (!visited.add(info.name())) {
+            return false;
+        }
+        for (String type : info.interfaces()) {
+            if (interfaceNames.contains(type)) {
+                return true;
+            }
+            ClassInfo parent = all.get(type);
+            if (parent != null && implementsMarker(parent, all, visited)) {
+                return true;
+            }
+        }
+        ClassInfo superclass = info.superName() != null ? all.get(info.superName()) : null;
+        return superclass != null && implementsMarker(superclass, all, visited);
+    }
+
+    private static String internalName(String className) {
+        return className.replace('.', '/');
+    }
+}
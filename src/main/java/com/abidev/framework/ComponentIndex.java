@@ -0,0 +1,95 @@
+package com.abidev.framework;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The classes listed at build time by {@link com.abidev.processor.ComponentIndexProcessor},
+ * merged across every index on the classpath (one per jar or output directory).
+ * <p>
+ * The index is {@value #INDEX}. Each line is {@code <kind> <binary class name>}, where kind is
+ * one of {@value #COMPONENT}, {@value #ROUTES}, {@value #ADVICE}, {@value #VALIDATOR} or
+ * {@value #INTERCEPTOR}. A class can appear once per kind.
+ * <p>
+ * The processor is compiled before the rest of the framework and refers to these constants,
+ * so this class must not depend on any other framework type.
+ */
+public final class ComponentIndex {
+
+    public static final String INDEX = "META-INF/abi/components.idx";
+
+    public static final String COMPONENT = "component";
+    public static final String ROUTES = "routes";
+    public static final String ADVICE = "advice";
+    public static final String VALIDATOR = "validator";
+    public static final String INTERCEPTOR = "interceptor";
+
+    private final Map<String, Set<String>> kinds;
+
+    private ComponentIndex(Map<String, Set<String>> kinds) {
+        this.kinds = kinds;
+    }
+
+    /**
+     * @return the merged index, or null if the classpath has none
+     */
+    static ComponentIndex load(ClassLoader loader) throws IOException {
+        Enumeration<URL> resources = loader.getResources(INDEX);
+        if (!resources.hasMoreElements()) {
+            return null;
+        }
+
+        Map<String, Set<String>> kinds = new LinkedHashMap<>();
+        while (resources.hasMoreElements()) {
+            try (InputStream in = resources.nextElement().openStream();
+                 BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int space = line.indexOf(' ');
+                    if (space > 0) {
+                        kinds.computeIfAbsent(line.substring(space + 1).trim(), k -> new TreeSet<>())
+                                .add(line.substring(0, space));
+                    }
+                }
+            }
+        }
+        return new ComponentIndex(kinds);
+    }
+
+    /**
+     * @return the indexed classes in a package or its subpackages
+     */
+    List<String> classNames(String packageName) {
+        String prefix = packageName + ".";
+        List<String> names = new ArrayList<>();
+        for (String name : kinds.keySet()) {
+            if (name.startsWith(prefix)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @param kind one of the kinds above, such as {@link #COMPONENT}
+     */
+    boolean has(Class<?> clazz, String kind) {
+        Set<String> classKinds = kinds.get(clazz.getName());
+        return classKinds != null && classKinds.contains(kind);
+    }
+
+    int size() {
+        return kinds.size();
+    }
+}
@@ -5,6 +5,7 @@ import com.abidev.annotations.ResponseStatus;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.TimeoutException;
 
 public class DefaultExceptionResolver {
 
@@ -15,6 +16,7 @@ public class DefaultExceptionResolver {
         mappings.put(SecurityException.class, 403);
         mappings.put(NoSuchElementException.class, 404);
         mappings.put(UnsupportedOperationException.class, 405);
+        mappings.put(TimeoutException.class, 503); // an async route that did not complete in time
         mappings.put(Exception.class, 500); // fallback
     }
 
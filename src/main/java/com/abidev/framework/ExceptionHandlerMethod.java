@@ -1,5 +1,7 @@
 package com.abidev.framework;
 
+import com.abidev.helpers.MethodInvoker;
+
 import java.lang.reflect.Method;
 import java.util.List;
 
@@ -7,11 +9,13 @@ public class ExceptionHandlerMethod {
 
     private final Object instance;
     private final Method method;
+    private final MethodInvoker invoker;
     private final List<Class<? extends Throwable>> handledExceptions;
 
     public ExceptionHandlerMethod(Object instance, Method method, List<Class<? extends Throwable>> handledExceptions) {
         this.instance = instance;
         this.method = method;
+        this.invoker = MethodInvoker.of(method);
         this.handledExceptions = handledExceptions;
     }
 
@@ -20,8 +24,7 @@ public class ExceptionHandlerMethod {
     }
 
     public Object invoke(Throwable ex) throws Exception {
-        method.setAccessible(true);
-        return method.invoke(instance, ex);
+        return invoker.invoke(instance, new Object[]{ex});
     }
 
     public List<Class<? extends Throwable>> getHandledExceptions() {
@@ -0,0 +1,21 @@
+package com.abidev.framework;
+
+/**
+ * A handle on a component, injected by declaring a {@code Provider<T>} constructor parameter
+ * or {@code @Inject} field.
+ * <p>
+ * The component is resolved on each {@link #get()}: the singleton, a new prototype, or the
+ * instance of the current request for a {@code @Scope("request")} component. A singleton can
+ * therefore use prototype and request-scoped components without being rebuilt per request.
+ *
+ * @param <T> the component type
+ */
+@FunctionalInterface
+public interface Provider<T> {
+
+    /**
+     * @throws IllegalStateException for a request-scoped component, if no request is in
+     *                               progress on this thread
+     */
+    T get();
+}
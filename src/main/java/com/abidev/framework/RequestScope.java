@@ -0,0 +1,43 @@
+package com.abidev.framework;
+
+import com.abidev.middleware.RequestContext;
+
+/**
+ * Binds the request being handled to the current thread, so request-scoped components can
+ * be created once per request and cached on its {@link RequestContext}.
+ * <p>
+ * When a controller returns a CompletionStage, the request is bound again on the thread that
+ * completes it, for the interceptors and exception handlers. Code in the controller's own
+ * stages runs unbound: it should get its request-scoped components before returning.
+ */
+final class RequestScope {
+
+    private static final ThreadLocal<RequestContext> CURRENT = new ThreadLocal<>();
+
+    private RequestScope() {
+    }
+
+    /**
+     * @return the context that was bound before, to pass to {@link #restore}
+     */
+    static RequestContext bind(RequestContext ctx) {
+        RequestContext previous = CURRENT.get();
+        CURRENT.set(ctx);
+        return previous;
+    }
+
+    static void restore(RequestContext previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * @return the request handled by this thread, or null
+     */
+    static RequestContext current() {
+        return CURRENT.get();
+    }
+}
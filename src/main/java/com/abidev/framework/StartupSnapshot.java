@@ -0,0 +1,217 @@
+package com.abidev.framework;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * What a scan discovered, saved so that later boots of the same application skip discovery:
+ * the classes with what they were found for (the kinds of {@link ComponentIndex}), the
+ * constructor chosen for each component and the route methods of each controller.
+ * <p>
+ * A snapshot is only used if it was written for the same package and the same classpath:
+ * the fingerprint covers the path, size and modification time of every classpath entry, and
+ * of every file inside classpath directories. Keep the snapshot file outside the classpath.
+ * <p>
+ * The file is plain text, one entry per line:
+ * <pre>
+ * abi-snapshot 1
+ * fingerprint &lt;hex&gt;
+ * package com.abidev
+ * class &lt;kind&gt; &lt;class name&gt;
+ * constructor &lt;class name&gt; &lt;parameter type&gt;...
+ * route &lt;class name&gt; &lt;method name&gt; &lt;parameter type&gt;...
+ * </pre>
+ */
+final class StartupSnapshot {
+
+    private static final String HEADER = "abi-snapshot 1";
+
+    /**
+     * @param className      the declaring class
+     * @param name           the method or constructor name ({@code <init>})
+     * @param parameterTypes the parameter type names, as returned by {@link Class#getName()}
+     */
+    record Member(String className, String name, List<String> parameterTypes) {
+    }
+
+    private final String packageName;
+    private final String fingerprint;
+    private final Map<String, Set<String>> kinds;
+    private final List<Member> constructors;
+    private final List<Member> routes;
+
+    StartupSnapshot(String packageName, String fingerprint, Map<String, Set<String>> kinds,
+                    List<Member> constructors, List<Member> routes) {
+        this.packageName = packageName;
+        this.fingerprint = fingerprint;
+        this.kinds = kinds;
+        this.constructors = constructors;
+        this.routes = routes;
+    }
+
+    Map<String, Set<String>> kinds() {
+        return kinds;
+    }
+
+    List<Member> constructors() {
+        return constructors;
+    }
+
+    List<Member> routes() {
+        return routes;
+    }
+
+    static Member member(Constructor<?> constructor) {
+        return new Member(constructor.getDeclaringClass().getName(), "<init>", typeNames(constructor.getParameterTypes()));
+    }
+
+    static Member member(Method method) {
+        return new Member(method.getDeclaringClass().getName(), method.getName(), typeNames(method.getParameterTypes()));
+    }
+
+    /**
+     * @return the snapshot in the file, or null if there is none or it was written for another
+     *         package or classpath
+     */
+    static StartupSnapshot load(Path file, String packageName, String fingerprint) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.size() < 3 || !lines.get(0).equals(HEADER)
+                || !lines.get(1).equals("fingerprint " + fingerprint)
+                || !lines.get(2).equals("package " + packageName)) {
+            return null;
+        }
+
+        Map<String, Set<String>> kinds = new LinkedHashMap<>();
+        List<Member> constructors = new ArrayList<>();
+        List<Member> routes = new ArrayList<>();
+        for (String line : lines.subList(3, lines.size())) {
+            String[] parts = line.split(" ");
+            switch (parts[0]) {
+                case "class" -> kinds.computeIfAbsent(parts[2], k -> new TreeSet<>()).add(parts[1]);
+                case "constructor" -> constructors.add(new Member(parts[1], "<init>", List.of(parts).subList(2, parts.length)));
+                case "route" -> routes.add(new Member(parts[1], parts[2], List.of(parts).subList(3, parts.length)));
+                default -> {
+                    // Blank or unknown line: written by a newer version, ignore it
+                }
+            }
+        }
+        return new StartupSnapshot(packageName, fingerprint, kinds, constructors, routes);
+    }
+
+    /**
+     * Writes the snapshot through a temporary file, so a concurrent boot never reads half of it.
+     */
+    void save(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(HEADER + "\n");
+            writer.write("fingerprint " + fingerprint + "\n");
+            writer.write("package " + packageName + "\n");
+            for (Map.Entry<String, Set<String>> entry : kinds.entrySet()) {
+                for (String kind : entry.getValue()) {
+                    writer.write("class " + kind + " " + entry.getKey() + "\n");
+                }
+            }
+            for (Member constructor : constructors) {
+                writer.write(line("constructor " + constructor.className(), constructor.parameterTypes()));
+            }
+            for (Member route : routes) {
+                writer.write(line("route " + route.className() + " " + route.name(), route.parameterTypes()));
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String line(String start, List<String> types) {
+        return types.isEmpty() ? start + "\n" : start + " " + String.join(" ", types) + "\n";
+    }
+
+    /**
+     * Hashes the path, size and modification time of every entry of {@code java.class.path},
+     * and of every file under the entries that are directories.
+     * <p>
+     * This runs first thing in the boot, when every JDK class it touches is still cold: plain
+     * arithmetic over {@code java.io.File}, rather than a {@code MessageDigest}, NIO walks or
+     * string concatenation, keeps it from costing more than the snapshot saves.
+     */
+    static String classpathFingerprint() {
+        long[] hash = {17, 0};
+        for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                update(hash, new File(entry));
+            }
+        }
+        return Long.toHexString(hash[0]) + "-" + hash[1];
+    }
+
+    // hash[0] is the hash, hash[1] the number of files
+    private static void update(long[] hash, File file) {
+        String[] children = file.list();
+        if (children != null) {
+            Arrays.sort(children);
+            for (String child : children) {
+                update(hash, new File(file, child));
+            }
+            return;
+        }
+        hash[0] = mix(mix(mix(hash[0], file.getPath().hashCode()), file.length()), file.lastModified());
+        hash[1]++;
+    }
+
+    private static long mix(long hash, long value) {
+        return (hash ^ value) * 0x100000001B3L;
+    }
+
+    /**
+     * Loads a type from a name returned by {@link Class#getName()}, primitives included.
+     */
+    static Class<?> type(String name, ClassLoader loader) throws ClassNotFoundException {
+        return switch (name) {
+            case "boolean" -> boolean.class;
+            case "byte" -> byte.class;
+            case "short" -> short.class;
+            case "char" -> char.class;
+            case "int" -> int.class;
+            case "long" -> long.class;
+            case "float" -> float.class;
+            case "double" -> double.class;
+            default -> Class.forName(name, false, loader);
+        };
+    }
+
+    static Class<?>[] types(List<String> names, ClassLoader loader) throws ClassNotFoundException {
+        Class<?>[] types = new Class<?>[names.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = type(names.get(i), loader);
+        }
+        return types;
+    }
+
+    private static List<String> typeNames(Class<?>[] types) {
+        List<String> names = new ArrayList<>(types.length);
+        for (Class<?> type : types) {
+            names.add(type.getName());
+        }
+        return names;
+    }
+}
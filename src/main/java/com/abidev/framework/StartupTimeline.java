@@ -0,0 +1,59 @@
+package com.abidev.framework;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How long each startup phase took: discovery, instantiation and route registration during
+ * {@link AbiFramework#scan(String)}, then the server bind.
+ */
+public final class StartupTimeline {
+
+    /**
+     * @param name  the phase
+     * @param nanos its duration
+     */
+    public record Phase(String name, long nanos) {
+    }
+
+    private final List<Phase> phases = new ArrayList<>();
+    private long origin;
+
+    /**
+     * Starts a new timeline; called at the beginning of a scan.
+     */
+    synchronized void reset() {
+        phases.clear();
+        origin = System.nanoTime();
+    }
+
+    /**
+     * Records a phase that started at {@code startNanos} and ends now.
+     */
+    public synchronized Phase record(String name, long startNanos) {
+        Phase phase = new Phase(name, System.nanoTime() - startNanos);
+        phases.add(phase);
+        return phase;
+    }
+
+    public synchronized List<Phase> getPhases() {
+        return List.copyOf(phases);
+    }
+
+    /**
+     * @return the time since the scan started
+     */
+    public synchronized long elapsedNanos() {
+        return System.nanoTime() - origin;
+    }
+
+    /**
+     * Prints one line per phase, then the time since the scan started.
+     */
+    public synchronized void print() {
+        for (Phase phase : phases) {
+            System.out.printf("\t\t%-20s %8.1f ms%n", phase.name(), phase.nanos() / 1_000_000.0);
+        }
+        System.out.printf("\t\t%-20s %8.1f ms%n", "total", elapsedNanos() / 1_000_000.0);
+    }
+}
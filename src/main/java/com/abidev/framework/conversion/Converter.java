@@ -0,0 +1,30 @@
+package com.abidev.framework.conversion;
+
+/**
+ * Converts request text (path variables, query params, headers) to a parameter type.
+ * <p>
+ * Converters are looked up once per controller parameter when routes are registered.
+ * Declare a {@code @Component} implementing this interface to support a new type, or to
+ * replace a built-in converter.
+ *
+ * @param <T> the target type
+ */
+public interface Converter<T> {
+
+    /**
+     * @return the type this converter produces
+     */
+    Class<T> targetType();
+
+    /**
+     * Converts the characters {@code source[start, end)}. Implementations should parse the
+     * slice in place rather than extract a substring.
+     *
+     * @throws IllegalArgumentException if the text is not a valid value (answered with 400)
+     */
+    T convert(CharSequence source, int start, int end);
+
+    default T convert(CharSequence source) {
+        return convert(source, 0, source.length());
+    }
+}
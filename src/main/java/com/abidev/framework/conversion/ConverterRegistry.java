@@ -0,0 +1,79 @@
+package com.abidev.framework.conversion;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converters by target type: the built-in ones, plus those registered by the application.
+ */
+public class ConverterRegistry {
+
+    private final Map<Class<?>, Converter<?>> converters = new HashMap<>();
+    private final Map<Class<?>, Converter<?>> enumConverters = new ConcurrentHashMap<>();
+
+    public ConverterRegistry() {
+        Converters.BUILT_IN.forEach(this::register);
+    }
+
+    /**
+     * Registers a converter, replacing any previous one for the same type. Converters of
+     * wrapper types also serve the primitive type.
+     */
+    public void register(Converter<?> converter) {
+        converters.put(converter.targetType(), converter);
+        Class<?> primitive = primitiveOf(converter.targetType());
+        if (primitive != null) {
+            converters.put(primitive, converter);
+        }
+    }
+
+    /**
+     * @return the converter for the type, or null if there is none
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <T> Converter<T> find(Class<T> type) {
+        Converter<?> converter = converters.get(type);
+        if (converter == null && type.isEnum()) {
+            converter = enumConverters.computeIfAbsent(type, t -> new Converters.EnumConverter(t));
+        }
+        return (Converter<T>) converter;
+    }
+
+    /**
+     * @return the element type of a {@code List<T>}, {@code Collection<T>} or array parameter,
+     *         or null if the parameter is not multi-valued
+     */
+    public static Class<?> elementType(Class<?> type, Type genericType) {
+        if (type.isArray()) {
+            return type.getComponentType();
+        }
+        if (type == List.class || type == Collection.class || type == Iterable.class) {
+            if (genericType instanceof ParameterizedType pt
+                    && pt.getActualTypeArguments()[0] instanceof Class<?> element) {
+                return element;
+            }
+            return String.class;
+        }
+        return null;
+    }
+
+    public Collection<Converter<?>> all() {
+        return converters.values();
+    }
+
+    private static Class<?> primitiveOf(Class<?> type) {
+        if (type == Integer.class) return int.class;
+        if (type == Long.class) return long.class;
+        if (type == Short.class) return short.class;
+        if (type == Double.class) return double.class;
+        if (type == Float.class) return float.class;
+        if (type == Boolean.class) return boolean.class;
+        if (type == Character.class) return char.class;
+        return null;
+    }
+}
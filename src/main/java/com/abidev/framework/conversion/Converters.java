@@ -0,0 +1,213 @@
+package com.abidev.framework.conversion;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * The built-in converters. Integers, booleans, ISO dates and enums are parsed from the slice
+ * directly; the others go through a String, which is only created if the slice is not
+ * already a whole String.
+ */
+final class Converters {
+
+    static final Converter<String> STRING = of(String.class, text -> text);
+
+    static final Converter<Integer> INTEGER = new Converter<>() {
+        @Override
+        public Class<Integer> targetType() {
+            return Integer.class;
+        }
+
+        @Override
+        public Integer convert(CharSequence source, int start, int end) {
+            return Integer.parseInt(source, start, end, 10);
+        }
+    };
+
+    static final Converter<Long> LONG = new Converter<>() {
+        @Override
+        public Class<Long> targetType() {
+            return Long.class;
+        }
+
+        @Override
+        public Long convert(CharSequence source, int start, int end) {
+            return Long.parseLong(source, start, end, 10);
+        }
+    };
+
+    static final Converter<Short> SHORT = new Converter<>() {
+        @Override
+        public Class<Short> targetType() {
+            return Short.class;
+        }
+
+        @Override
+        public Short convert(CharSequence source, int start, int end) {
+            int value = Integer.parseInt(source, start, end, 10);
+            if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+                throw new NumberFormatException("Value out of range: " + value);
+            }
+            return (short) value;
+        }
+    };
+
+    static final Converter<Boolean> BOOLEAN = new Converter<>() {
+        @Override
+        public Class<Boolean> targetType() {
+            return Boolean.class;
+        }
+
+        @Override
+        public Boolean convert(CharSequence source, int start, int end) {
+            // Same as Boolean.parseBoolean: anything but "true" is false
+            return regionEqualsIgnoreCase(source, start, end, "true");
+        }
+    };
+
+    static final Converter<Character> CHARACTER = new Converter<>() {
+        @Override
+        public Class<Character> targetType() {
+            return Character.class;
+        }
+
+        @Override
+        public Character convert(CharSequence source, int start, int end) {
+            if (end - start != 1) {
+                throw new IllegalArgumentException("Expected a single character: " + text(source, start, end));
+            }
+            return source.charAt(start);
+        }
+    };
+
+    static final Converter<Double> DOUBLE = of(Double.class, Double::valueOf);
+    static final Converter<Float> FLOAT = of(Float.class, Float::valueOf);
+    static final Converter<BigDecimal> BIG_DECIMAL = of(BigDecimal.class, BigDecimal::new);
+    static final Converter<Instant> INSTANT = of(Instant.class, text -> parseTime(text, Instant::parse));
+    static final Converter<LocalDateTime> LOCAL_DATE_TIME =
+            of(LocalDateTime.class, text -> parseTime(text, LocalDateTime::parse));
+
+    // UUID.fromString has a table-driven fast path for the canonical form that measured faster
+    // than parsing the slice through CharSequence.charAt, even with the substring
+    static final Converter<UUID> UUIDS = of(UUID.class, UUID::fromString);
+
+    static final Converter<LocalDate> LOCAL_DATE = new Converter<>() {
+        @Override
+        public Class<LocalDate> targetType() {
+            return LocalDate.class;
+        }
+
+        @Override
+        public LocalDate convert(CharSequence source, int start, int end) {
+            // Fast path for the ISO yyyy-MM-dd form
+            if (end - start == 10 && source.charAt(start + 4) == '-' && source.charAt(start + 7) == '-') {
+                try {
+                    return LocalDate.of(
+                            Integer.parseInt(source, start, start + 4, 10),
+                            Integer.parseInt(source, start + 5, start + 7, 10),
+                            Integer.parseInt(source, start + 8, end, 10));
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Invalid date: " + text(source, start, end), e);
+                }
+            }
+            return parseTime(text(source, start, end), LocalDate::parse);
+        }
+    };
+
+    static final List<Converter<?>> BUILT_IN = List.of(
+            STRING, INTEGER, LONG, SHORT, BOOLEAN, CHARACTER, DOUBLE, FLOAT, BIG_DECIMAL,
+            UUIDS, LOCAL_DATE, LOCAL_DATE_TIME, INSTANT);
+
+    private Converters() {
+    }
+
+    /**
+     * Converts enum constants by name; an exact match wins over a case-insensitive one.
+     */
+    static final class EnumConverter<E extends Enum<E>> implements Converter<E> {
+
+        private final Class<E> type;
+        private final E[] constants;
+
+        EnumConverter(Class<E> type) {
+            this.type = type;
+            this.constants = type.getEnumConstants();
+        }
+
+        @Override
+        public Class<E> targetType() {
+            return type;
+        }
+
+        @Override
+        public E convert(CharSequence source, int start, int end) {
+            for (E constant : constants) {
+                if (regionEquals(source, start, end, constant.name())) {
+                    return constant;
+                }
+            }
+            for (E constant : constants) {
+                if (regionEqualsIgnoreCase(source, start, end, constant.name())) {
+                    return constant;
+                }
+            }
+            throw new IllegalArgumentException("No " + type.getSimpleName() + " named " + text(source, start, end));
+        }
+    }
+
+    private static <T> Converter<T> of(Class<T> type, Function<String, T> parser) {
+        return new Converter<>() {
+            @Override
+            public Class<T> targetType() {
+                return type;
+            }
+
+            @Override
+            public T convert(CharSequence source, int start, int end) {
+                return parser.apply(text(source, start, end));
+            }
+        };
+    }
+
+    private static <T> T parseTime(String text, Function<String, T> parser) {
+        try {
+            return parser.apply(text);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date/time: " + text, e);
+        }
+    }
+
+    /**
+     * @return the slice as a String, without copying when it already is one
+     */
+    static String text(CharSequence source, int start, int end) {
+        if (source instanceof String s && start == 0 && end == s.length()) {
+            return s;
+        }
+        return source.subSequence(start, end).toString();
+    }
+
+    private static boolean regionEquals(CharSequence source, int start, int end, String value) {
+        if (end - start != value.length()) return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (source.charAt(start + i) != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean regionEqualsIgnoreCase(CharSequence source, int start, int end, String value) {
+        if (end - start != value.length()) return false;
+        for (int i = 0; i < value.length(); i++) {
+            char a = source.charAt(start + i);
+            char b = value.charAt(i);
+            if (a != b && Character.toUpperCase(a) != Character.toUpperCase(b)) return false;
+        }
+        return true;
+    }
+}
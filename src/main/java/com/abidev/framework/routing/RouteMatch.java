@@ -0,0 +1,11 @@
+package com.abidev.framework.routing;
+
+/**
+ * Result of {@link RouteTrie#match(String)}.
+ *
+ * @param value     the matched route's value
+ * @param pattern   the matched route's pattern
+ * @param variables the path variable values, in the order they appear in the pattern
+ */
+public record RouteMatch<T>(T value, String pattern, String[] variables) {
+}
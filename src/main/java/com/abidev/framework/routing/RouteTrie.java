@@ -0,0 +1,223 @@
+package com.abidev.framework.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Segment trie of route patterns such as {@code /user/{id}/profile}, built once at
+ * registration time.
+ * <p>
+ * Matching walks the path in a single pass without splitting it: static segments are
+ * compared in place and variables are recorded as offsets, so the only allocations are the
+ * captured values and the result. Static segments take precedence over variables; if the
+ * static branch fails further down, the variable branch is tried instead.
+ * <p>
+ * Leading and trailing slashes are ignored, so {@code /hello/} matches {@code /hello}.
+ *
+ * @param <T> the value stored per route
+ */
+public final class RouteTrie<T> {
+
+    /**
+     * Above this many static children a hash lookup beats comparing segments one by one.
+     */
+    private static final int LINEAR_SCAN_LIMIT = 8;
+
+    private final Node<T> root = new Node<>();
+    private int size;
+    private int maxVariables;
+
+    /**
+     * Adds a route.
+     *
+     * @throws IllegalStateException if a route with the same shape (ignoring variable names) exists
+     */
+    public void insert(String pattern, T value) {
+        Node<T> node = nodeFor(pattern);
+        if (node.value != null) {
+            throw new IllegalStateException("Ambiguous route: " + pattern + " conflicts with " + node.pattern);
+        }
+        node.value = value;
+        node.pattern = pattern;
+        size++;
+    }
+
+    /**
+     * @return the value stored for a route with the same shape as {@code pattern}, or null
+     */
+    public T get(String pattern) {
+        Node<T> node = root;
+        for (String segment : segments(pattern)) {
+            node = isVariable(segment) ? node.variable : node.staticChild(segment);
+            if (node == null) return null;
+        }
+        return node.value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Matches a request path.
+     *
+     * @return the match, or null if no route matches
+     */
+    public RouteMatch<T> match(String path) {
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.length();
+        if (end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+
+        int[] captures = new int[maxVariables * 2];
+        Node<T> node;
+
+        if (start >= end) {
+            node = root.value != null ? root : null;
+        } else {
+            node = walk(root, path, start, end, captures, 0);
+        }
+
+        if (node == null) {
+            return null;
+        }
+
+        String[] variables = new String[node.depthVariables];
+        for (int i = 0; i < variables.length; i++) {
+            variables[i] = path.substring(captures[i * 2], captures[i * 2 + 1]);
+        }
+        return new RouteMatch<>(node.value, node.pattern, variables);
+    }
+
+    private Node<T> walk(Node<T> node, String path, int pos, int end, int[] captures, int captured) {
+        if (pos > end) {
+            return node.value != null ? node : null;
+        }
+
+        int slash = path.indexOf('/', pos);
+        int segmentEnd = slash < 0 || slash > end ? end : slash;
+
+        Node<T> child = node.staticChild(path, pos, segmentEnd);
+        if (child != null) {
+            Node<T> found = walk(child, path, segmentEnd + 1, end, captures, captured);
+            if (found != null) {
+                return found;
+            }
+        }
+
+        if (node.variable != null && segmentEnd > pos) {
+            captures[captured * 2] = pos;
+            captures[captured * 2 + 1] = segmentEnd;
+            return walk(node.variable, path, segmentEnd + 1, end, captures, captured + 1);
+        }
+
+        return null;
+    }
+
+    private Node<T> nodeFor(String pattern) {
+        Node<T> node = root;
+        int variables = 0;
+
+        for (String segment : segments(pattern)) {
+            if (isVariable(segment)) {
+                if (node.variable == null) {
+                    node.variable = new Node<>();
+                }
+                node = node.variable;
+                variables++;
+            } else {
+                node = node.addStaticChild(segment);
+            }
+        }
+
+        node.depthVariables = variables;
+        maxVariables = Math.max(maxVariables, variables);
+        return node;
+    }
+
+    /**
+     * Splits a pattern the same way paths are matched.
+     */
+    public static List<String> segments(String pattern) {
+        int start = pattern.startsWith("/") ? 1 : 0;
+        int end = pattern.length();
+        if (end > start && pattern.charAt(end - 1) == '/') {
+            end--;
+        }
+
+        List<String> segments = new ArrayList<>();
+        if (start >= end) {
+            return segments;
+        }
+        segments.addAll(Arrays.asList(pattern.substring(start, end).split("/", -1)));
+        return segments;
+    }
+
+    public static boolean isVariable(String segment) {
+        return segment.length() > 2 && segment.startsWith("{") && segment.endsWith("}");
+    }
+
+    private static final class Node<T> {
+
+        private String[] staticKeys = new String[0];
+        @SuppressWarnings("unchecked")
+        private Node<T>[] staticNodes = (Node<T>[]) new Node<?>[0];
+        private Map<String, Node<T>> staticIndex;
+
+        private Node<T> variable;
+        private T value;
+        private String pattern;
+        private int depthVariables;
+
+        Node<T> staticChild(String segment) {
+            for (int i = 0; i < staticKeys.length; i++) {
+                if (staticKeys[i].equals(segment)) return staticNodes[i];
+            }
+            return null;
+        }
+
+        Node<T> staticChild(String path, int start, int end) {
+            if (staticIndex != null) {
+                return staticIndex.get(path.substring(start, end));
+            }
+
+            int length = end - start;
+            for (int i = 0; i < staticKeys.length; i++) {
+                String key = staticKeys[i];
+                if (key.length() == length && path.regionMatches(start, key, 0, length)) {
+                    return staticNodes[i];
+                }
+            }
+            return null;
+        }
+
+        Node<T> addStaticChild(String segment) {
+            Node<T> existing = staticChild(segment);
+            if (existing != null) {
+                return existing;
+            }
+
+            Node<T> child = new Node<>();
+            int n = staticKeys.length;
+            staticKeys = Arrays.copyOf(staticKeys, n + 1);
+            staticNodes = Arrays.copyOf(staticNodes, n + 1);
+            staticKeys[n] = segment;
+            staticNodes[n] = child;
+
+            if (n + 1 > LINEAR_SCAN_LIMIT) {
+                if (staticIndex == null) {
+                    staticIndex = new HashMap<>();
+                    for (int i = 0; i < n; i++) {
+                        staticIndex.put(staticKeys[i], staticNodes[i]);
+                    }
+                }
+                staticIndex.put(segment, child);
+            }
+            return child;
+        }
+    }
+}
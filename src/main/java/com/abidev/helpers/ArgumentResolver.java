@@ -0,0 +1,13 @@
+package com.abidev.helpers;
+
+import com.abidev.middleware.RequestContext;
+
+/**
+ * Produces one argument of a controller method from the request. Resolvers are built once per
+ * parameter when routes are registered, see {@link ArgumentResolvers}.
+ */
+@FunctionalInterface
+public interface ArgumentResolver {
+
+    Object resolve(RequestContext ctx) throws Exception;
+}
@@ -0,0 +1,293 @@
+package com.abidev.helpers;
+
+import com.abidev.annotations.Cacheable;
+import com.abidev.annotations.PathVariable;
+import com.abidev.annotations.RequestBody;
+import com.abidev.annotations.RequestHeader;
+import com.abidev.annotations.RequestParam;
+import com.abidev.annotations.validation.Valid;
+import com.abidev.framework.conversion.Converter;
+import com.abidev.framework.conversion.ConverterRegistry;
+import com.abidev.framework.validations.ValidatorEngine;
+import com.abidev.middleware.RequestContext;
+
+import java.io.PushbackInputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiles the parameters of a controller method into {@link ArgumentResolver}s.
+ * <p>
+ * Annotations, names and conversions are looked at once, when the route is registered, so
+ * that a request only runs the resolvers. A parameter that can't be resolved fails the
+ * registration instead of the first request.
+ */
+public final class ArgumentResolvers {
+
+    private static final ArgumentResolver[] NONE = new ArgumentResolver[0];
+
+    private ArgumentResolvers() {
+    }
+
+    /**
+     * @param method        the controller method
+     * @param variableNames the path variables of the route, in pattern order
+     * @param converters    the converters for path variables, query params and headers
+     * @throws IllegalStateException if a parameter can't be resolved
+     */
+    public static ArgumentResolver[] compile(Method method, List<String> variableNames, ConverterRegistry converters) {
+        Parameter[] parameters = method.getParameters();
+        if (parameters.length == 0) {
+            return NONE;
+        }
+
+        ArgumentResolver[] resolvers = new ArgumentResolver[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            try {
+                resolvers[i] = compile(parameters[i], i, variableNames, converters);
+            } catch (IllegalStateException e) {
+                throw new IllegalStateException("Cannot resolve parameter " + i + " of type "
+                        + parameters[i].getType().getName() + " in method "
+                        + method.getDeclaringClass().getSimpleName() + "." + method.getName()
+                        + ": " + e.getMessage(), e);
+            }
+        }
+        return resolvers;
+    }
+
+    /**
+     * Checks that every input the method reads is part of the cache key, so that a cached
+     * response is never served to a request it was not computed for. Path variables are part
+     * of the path; query parameters and headers must be listed on {@link Cacheable}. Anything
+     * else, such as the request body or the {@link RequestContext} with its attributes, is
+     * not in the key at all.
+     *
+     * @throws IllegalStateException if a parameter is missing from the key
+     */
+    public static void checkCacheKey(Method method, Cacheable cacheable) {
+        for (Parameter parameter : method.getParameters()) {
+            String missing = unkeyed(parameter, cacheable);
+            if (missing != null) {
+                throw new IllegalStateException("Cannot cache responses of "
+                        + method.getDeclaringClass().getSimpleName() + "." + method.getName()
+                        + ": " + missing);
+            }
+        }
+    }
+
+    /**
+     * @return why the parameter is not covered by the cache key, or null if it is
+     */
+    private static String unkeyed(Parameter parameter, Cacheable cacheable) {
+        if (parameter.isAnnotationPresent(PathVariable.class)) {
+            return null;
+        }
+        RequestParam rp = parameter.getAnnotation(RequestParam.class);
+        if (rp != null) {
+            return Arrays.asList(cacheable.queryParams()).contains(rp.value())
+                    ? null
+                    : "query parameter '" + rp.value() + "' is not in @Cacheable(queryParams)";
+        }
+        RequestHeader rh = parameter.getAnnotation(RequestHeader.class);
+        if (rh != null) {
+            return Arrays.stream(cacheable.headers()).anyMatch(rh.value()::equalsIgnoreCase)
+                    ? null
+                    : "header '" + rh.value() + "' is not in @Cacheable(headers)";
+        }
+        if (parameter.getType() == RequestContext.class) {
+            return "RequestContext gives access to inputs that are not in the key";
+        }
+        return "parameter '" + parameter.getName() + "' is not part of the key";
+    }
+
+    private static ArgumentResolver compile(Parameter parameter, int index, List<String> variableNames,
+                                            ConverterRegistry converters) {
+        Class<?> type = parameter.getType();
+
+        // ---- RequestContext ----
+        if (type == RequestContext.class) {
+            return ctx -> ctx;
+        }
+
+        for (Annotation a : parameter.getAnnotations()) {
+
+            // ---- @PathVariable ----
+            if (a instanceof PathVariable pv) {
+                int variable = variableNames.indexOf(pv.value());
+                if (variable < 0) {
+                    throw new IllegalStateException("no path variable {" + pv.value() + "} in the route");
+                }
+                return new PathVariableResolver(variable, pv.value(), converter(converters, type));
+            }
+
+            // ---- @RequestParam ----
+            if (a instanceof RequestParam rp) {
+                Class<?> element = ConverterRegistry.elementType(type, parameter.getParameterizedType());
+                if (element != null) {
+                    return new MultiQueryParamResolver(rp.value(), rp.defaultValue(), rp.required(),
+                            converter(converters, element), type.isArray() ? element : null);
+                }
+                return new QueryParamResolver(rp.value(), rp.defaultValue(), rp.required(), converter(converters, type));
+            }
+
+            // ---- @RequestBody ----
+            if (a instanceof RequestBody rb) {
+                return new BodyResolver(type, rb.required(), parameter.isAnnotationPresent(Valid.class), index);
+            }
+
+            // ---- @RequestHeader ----
+            if (a instanceof RequestHeader rh) {
+                return new HeaderResolver(rh.value(), rh.defaultValue(), rh.required(), converter(converters, type));
+            }
+        }
+
+        throw new IllegalStateException("no @PathVariable, @RequestParam, @RequestHeader or @RequestBody");
+    }
+
+    /**
+     * Runs the resolvers.
+     */
+    public static Object[] resolve(ArgumentResolver[] resolvers, RequestContext ctx) throws Exception {
+        if (resolvers.length == 0) {
+            return NONE;
+        }
+
+        Object[] args = new Object[resolvers.length];
+        for (int i = 0; i < resolvers.length; i++) {
+            args[i] = resolvers[i].resolve(ctx);
+        }
+        return args;
+    }
+
+    /**
+     * @throws IllegalStateException if there is no converter for the type
+     */
+    static Converter<?> converter(ConverterRegistry converters, Class<?> type) {
+        Converter<?> converter = converters.find(type);
+        if (converter == null) {
+            throw new IllegalStateException("no converter for type " + type.getName());
+        }
+        return converter;
+    }
+
+    // =========================
+    // RESOLVERS
+    // =========================
+
+    private record PathVariableResolver(int index, String name, Converter<?> converter)
+            implements ArgumentResolver {
+
+        @Override
+        public Object resolve(RequestContext ctx) {
+            String raw = ctx.getPathVariable(index);
+            if (raw == null) {
+                throw new IllegalArgumentException("Missing path variable: " + name);
+            }
+            return converter.convert(raw);
+        }
+    }
+
+    private record QueryParamResolver(String name, String defaultValue, boolean required,
+                                      Converter<?> converter) implements ArgumentResolver {
+
+        @Override
+        public Object resolve(RequestContext ctx) {
+            String raw = !name.isEmpty() ? ctx.getQueryParam(name) : null;
+
+            if (raw == null || raw.isEmpty()) {
+                if (!defaultValue.isEmpty()) {
+                    raw = defaultValue;
+                } else if (required) {
+                    throw new IllegalArgumentException("Missing required query param: " + (name.isEmpty() ? null : name));
+                } else {
+                    return null;
+                }
+            }
+            return converter.convert(raw);
+        }
+    }
+
+    /**
+     * Collects the values of a repeated query parameter into a {@code List} or an array.
+     */
+    private record MultiQueryParamResolver(String name, String defaultValue, boolean required,
+                                           Converter<?> converter, Class<?> arrayType)
+            implements ArgumentResolver {
+
+        @Override
+        public Object resolve(RequestContext ctx) {
+            List<String> raw = !name.isEmpty() ? ctx.getQueryParamValues(name) : List.of();
+
+            if (raw.isEmpty()) {
+                if (!defaultValue.isEmpty()) {
+                    raw = List.of(defaultValue);
+                } else if (required) {
+                    throw new IllegalArgumentException("Missing required query param: " + (name.isEmpty() ? null : name));
+                }
+            }
+
+            if (arrayType != null) {
+                Object array = Array.newInstance(arrayType, raw.size());
+                for (int i = 0; i < raw.size(); i++) {
+                    Array.set(array, i, converter.convert(raw.get(i)));
+                }
+                return array;
+            }
+
+            Object[] values = new Object[raw.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = converter.convert(raw.get(i));
+            }
+            return List.of(values);
+        }
+    }
+
+    private record HeaderResolver(String name, String defaultValue, boolean required, Converter<?> converter)
+            implements ArgumentResolver {
+
+        @Override
+        public Object resolve(RequestContext ctx) {
+            String raw = ctx.getHeader(name);
+
+            if (raw == null || raw.isEmpty()) {
+                if (!defaultValue.isEmpty()) {
+                    raw = defaultValue;
+                } else if (required) {
+                    throw new IllegalArgumentException("Missing required header: " + name);
+                } else {
+                    return null;
+                }
+            }
+            return converter.convert(raw);
+        }
+    }
+
+    private record BodyResolver(Class<?> type, boolean required, boolean validate, int index)
+            implements ArgumentResolver {
+
+        @Override
+        public Object resolve(RequestContext ctx) throws Exception {
+            PushbackInputStream body = new PushbackInputStream(ctx.getBodyStream(), 1);
+            int first = body.read();
+
+            if (first < 0) {
+                if (required) {
+                    throw new IllegalArgumentException("Missing required request body for parameter " + index);
+                }
+                return null;
+            }
+            body.unread(first);
+
+            Object obj = BodyConverter.convert(body, type);
+
+            if (validate) {
+                ValidatorEngine.validate(obj);
+            }
+            return obj;
+        }
+    }
+}
@@ -1,15 +1,26 @@
 package com.abidev.helpers;
 
+import com.abidev.http.PayloadTooLargeException;
 import tools.jackson.databind.ObjectMapper;
 
+import java.io.InputStream;
+
 public class BodyConverter {
 
     private static final ObjectMapper mapper = new ObjectMapper();
 
-    public static <T> T convert(String body, Class<T> clazz) throws Exception {
+    /**
+     * Parses the body straight from the stream, without building an intermediate String.
+     */
+    public static <T> T convert(InputStream body, Class<T> clazz) throws Exception {
         try {
             return mapper.readValue(body, clazz);
+        } catch (PayloadTooLargeException e) {
+            throw e;
         } catch (Exception e) {
+            if (e.getCause() instanceof PayloadTooLargeException tooLarge) {
+                throw tooLarge;
+            }
             throw new Exception("Failed to convert request body to " + clazz.getName(), e);
         }
     }
@@ -0,0 +1,74 @@
+package com.abidev.helpers;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * Calls a controller method through a {@link MethodHandle} adapted once, at registration,
+ * to {@code (Object target, Object[] args) -> Object}.
+ * <p>
+ * Unlike {@link Method#invoke}, there is no access check or argument copy per call, the JIT
+ * can inline the call chain, and exceptions thrown by the method propagate as they are
+ * instead of being wrapped in {@link java.lang.reflect.InvocationTargetException}.
+ */
+public final class MethodInvoker {
+
+    private static final MethodType GENERIC = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private final Method method;
+    private final MethodHandle handle;
+
+    private MethodInvoker(Method method, MethodHandle handle) {
+        this.method = method;
+        this.handle = handle;
+    }
+
+    /**
+     * @throws IllegalStateException if the method is not accessible
+     */
+    public static MethodInvoker of(Method method) {
+        MethodHandle handle;
+        try {
+            method.setAccessible(true);
+            handle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalStateException("Cannot access " + method.getDeclaringClass().getName()
+                    + "." + method.getName(), e);
+        }
+
+        if (Modifier.isStatic(method.getModifiers())) {
+            // Keep the uniform (target, args) shape; the target is ignored
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+
+        handle = handle
+                .asSpreader(Object[].class, method.getParameterCount())
+                .asType(GENERIC);
+
+        return new MethodInvoker(method, handle);
+    }
+
+    /**
+     * Calls the method. Checked exceptions and errors thrown by it are rethrown unchanged.
+     *
+     * @param target the instance, ignored for static methods
+     * @param args   the arguments, exactly one per parameter
+     */
+    public Object invoke(Object target, Object[] args) throws Exception {
+        try {
+            return (Object) handle.invokeExact(target, args);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+}
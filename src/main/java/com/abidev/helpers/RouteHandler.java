@@ -1,16 +1,21 @@
 package com.abidev.helpers;
 import com.abidev.annotations.*;
-import com.abidev.annotations.validation.Valid;
-import com.abidev.framework.validations.ValidatorEngine;
+import com.abidev.framework.conversion.ConverterRegistry;
+import com.abidev.framework.routing.RouteTrie;
 import com.abidev.http.HandlerResult;
-import com.abidev.http.QueryParamsUtils;
+import com.abidev.http.HttpMethod;
+import com.abidev.http.ConditionalRequests;
+import com.abidev.http.ResourceVersion;
 import com.abidev.http.ResponseEntity;
+import com.abidev.http.cache.ResponseCache;
 import com.abidev.middleware.RequestContext;
-import com.sun.net.httpserver.HttpExchange;
+import com.abidev.http.transport.ServerExchange;
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
-import java.util.HashMap;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
 
@@ -21,66 +26,97 @@ public class RouteHandler {
 
     private final Supplier<Object> instanceSupplier;
     private final Method method;
+    private final MethodInvoker invoker;
+    private final ArgumentResolver[] resolvers;
+    private final int defaultStatus;
     private final String routePattern;
+    private final long maxBodySize;
+    private final long asyncTimeout;
+    private final Compress compress;
+    private final String[] variableNames;
+    private final HttpMethod[] httpMethods;
+    private final ResponseCache cache;
+    private final Method versionMethod;
+    private final MethodInvoker versionInvoker;
+    private final ArgumentResolver[] versionResolvers;
+    private final Method lastModifiedMethod;
+    private final MethodInvoker lastModifiedInvoker;
+    private final ArgumentResolver[] lastModifiedResolvers;
 
     public RouteHandler(Supplier<Object> instanceSupplier, Method method, String routePattern) {
-        this.instanceSupplier = instanceSupplier;
-        this.method = method;
-        this.routePattern = routePattern;
-        this.method.setAccessible(true);
+        this(instanceSupplier, method, routePattern, -1);
     }
 
-    public boolean matches(String path) {
-        String[] pathParts = normalize(path).split("/");
-        String[] patternParts = normalize(routePattern).split("/");
+    public RouteHandler(Supplier<Object> instanceSupplier, Method method, String routePattern, long maxBodySize) {
+        this(instanceSupplier, method, routePattern, maxBodySize, new HttpMethod[]{HttpMethod.GET, HttpMethod.POST});
+    }
 
-        if (pathParts.length != patternParts.length) {
-            return false;
-        }
+    public RouteHandler(Supplier<Object> instanceSupplier, Method method, String routePattern, long maxBodySize,
+                        HttpMethod[] httpMethods) {
+        this(instanceSupplier, method, routePattern, maxBodySize, httpMethods, new ConverterRegistry());
+    }
 
-        for (int i = 0; i < patternParts.length; i++) {
-            if (patternParts[i].startsWith("{")) continue;
-            if (!patternParts[i].equals(pathParts[i])) {
-                return false;
-            }
+    /**
+     * @param converters the converters for path variables, query params and headers; each
+     *                   parameter's converter is chosen here, once
+     */
+    public RouteHandler(Supplier<Object> instanceSupplier, Method method, String routePattern, long maxBodySize,
+                        HttpMethod[] httpMethods, ConverterRegistry converters) {
+        this.httpMethods = httpMethods.clone();
+        this.instanceSupplier = instanceSupplier;
+        this.method = method;
+        this.routePattern = routePattern;
+        this.maxBodySize = maxBodySize;
+        Route route = method.getAnnotation(Route.class);
+        this.asyncTimeout = route != null ? route.asyncTimeout() : -1;
+        this.compress = method.getAnnotation(Compress.class);
+        Cacheable cacheable = method.getAnnotation(Cacheable.class);
+        this.cache = cacheable != null ? new ResponseCache(cacheable) : null;
+        this.variableNames = RouteTrie.segments(routePattern).stream()
+                .filter(RouteTrie::isVariable)
+                .map(segment -> segment.substring(1, segment.length() - 1))
+                .toArray(String[]::new);
+        ConditionalGet conditional = method.getAnnotation(ConditionalGet.class);
+        this.versionMethod = conditional != null ? findSibling(conditional.version()) : null;
+        this.lastModifiedMethod = conditional != null ? findSibling(conditional.lastModified()) : null;
+        this.versionInvoker = versionMethod != null ? MethodInvoker.of(versionMethod) : null;
+        this.lastModifiedInvoker = lastModifiedMethod != null ? MethodInvoker.of(lastModifiedMethod) : null;
+        this.invoker = MethodInvoker.of(method);
+
+        // Resolve parameters now so that a bad signature fails at registration
+        List<String> variables = List.of(variableNames);
+        this.resolvers = ArgumentResolvers.compile(method, variables, converters);
+        this.versionResolvers = versionMethod != null ? ArgumentResolvers.compile(versionMethod, variables, converters) : null;
+        this.lastModifiedResolvers = lastModifiedMethod != null
+                ? ArgumentResolvers.compile(lastModifiedMethod, variables, converters)
+                : null;
+        if (cacheable != null) {
+            ArgumentResolvers.checkCacheKey(method, cacheable);
         }
 
-        return true;
+        ResponseStatus responseStatus = method.getAnnotation(ResponseStatus.class);
+        this.defaultStatus = responseStatus != null ? responseStatus.value() : 200;
     }
 
     /**
-     * Invokes the method with parameters extracted from the given path.
-     *
-     * @param path the URL path containing parameters
-     * @return the result of the method invocation
-     * @throws Exception if an error occurs during invocation
+     * Finds a method of the controller by name, for {@link ConditionalGet}.
      */
-    public Object invokeWithPath(String path) throws Exception {
-        String[] pathParts = path.split("/");
-        String[] patternParts = routePattern.split("/");
-
-        Class<?>[] paramTypes = method.getParameterTypes();
-        Object[] args = new Object[paramTypes.length];
-
-        int argIndex = 0;
-        for (int i = 0; i < patternParts.length; i++) {
-            if (patternParts[i].startsWith("{")) {
-                String value = pathParts[i];
-                Class<?> expectedType = paramTypes[argIndex];
-                args[argIndex] = convert(value, expectedType);
-                argIndex++;
-            }
+    private Method findSibling(String name) {
+        if (name.isEmpty()) {
+            return null;
         }
 
-        Object instance = instanceSupplier.get();
-        return method.invoke(instance, args);
-    }
+        Method[] candidates = Arrays.stream(method.getDeclaringClass().getDeclaredMethods())
+                .filter(m -> m.getName().equals(name))
+                .toArray(Method[]::new);
 
-    private String normalize(String s) {
-        if (s == null || s.isBlank()) return "";
-        if (s.startsWith("/")) s = s.substring(1);
-        if (s.endsWith("/")) s = s.substring(0, s.length() - 1);
-        return s;
+        if (candidates.length != 1) {
+            throw new IllegalStateException("@ConditionalGet on " + method.getDeclaringClass().getSimpleName()
+                    + "." + method.getName() + ": expected exactly one method named '" + name
+                    + "', found " + candidates.length);
+        }
+
+        return candidates[0];
     }
 
     public String getPattern() {
@@ -88,189 +124,129 @@ public class RouteHandler {
     }
 
     /**
-     * Creates RequestContext extracting path variables.
+     * @return the route's maximum body size in bytes, or a negative value to use the framework default
      */
-    public RequestContext createContext(String path, HttpExchange exchange) {
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
 
-        String[] patternParts = routePattern.split("/");
-        String[] pathParts = path.split("/");
+    /**
+     * @return the route's timeout in milliseconds for a returned CompletionStage, 0 for none,
+     *         or a negative value to use the framework default
+     */
+    public long getAsyncTimeout() {
+        return asyncTimeout;
+    }
 
-        Map<String, String> variables = new HashMap<>();
+    /**
+     * @return the HTTP methods the route answers
+     */
+    public HttpMethod[] getMethods() {
+        return httpMethods.clone();
+    }
 
+    /**
+     * @return the route's response cache, or null if the route is not {@link Cacheable}
+     */
+    public ResponseCache getCache() {
+        return cache;
+    }
 
-        for (int i = 0; i < patternParts.length; i++) {
-            String p = patternParts[i];
+    /**
+     * @return the route's compression settings, or null to use the server's
+     */
+    public Compress getCompress() {
+        return compress;
+    }
 
-            if (p.startsWith("{") && p.endsWith("}")) {
-                String varName = p.substring(1, p.length() - 1);
-                variables.put(varName, pathParts[i]);
-            }
-        }
+    /**
+     * @return the controller to handle one request with. A prototype or request-scoped
+     *         controller is created on each call, so look it up once per request
+     */
+    public Object getController() {
+        return instanceSupplier.get();
+    }
+
+    /**
+     * @return whether the route declares validators with {@link ConditionalGet}
+     */
+    public boolean isConditional() {
+        return versionMethod != null || lastModifiedMethod != null;
+    }
+
+    /**
+     * Creates RequestContext. Nothing is parsed or copied here: path variables, query
+     * parameters, headers and the body are read on first access.
+     *
+     * @param variableValues the path variable values captured by the router, in pattern order
+     * @param maxBodySize    the effective maximum body size for this request
+     */
+    public RequestContext createContext(String path, String[] variableValues, ServerExchange exchange, long maxBodySize) {
+        return new RequestContext(path, variableNames, variableValues, exchange, maxBodySize);
+    }
 
-        Map<String, String> queryParams = QueryParamsUtils.parse(exchange);
+    /**
+     * Computes the validators declared by {@link ConditionalGet} without running the handler.
+     *
+     * @param controller the request's controller, from {@link #getController()}
+     * @return the resource version, or null if the route is not conditional
+     */
+    public ResourceVersion resourceVersion(Object controller, RequestContext ctx) throws Exception {
+        if (!isConditional()) {
+            return null;
+        }
 
-        String body = null;
-        try {
-            body = new String(exchange.getRequestBody().readAllBytes());
-        } catch (Exception e) {
-            e.printStackTrace();
+        String eTag = null;
+        if (versionMethod != null) {
+            Object version = versionInvoker.invoke(controller, ArgumentResolvers.resolve(versionResolvers, ctx));
+            eTag = version != null ? ConditionalRequests.eTagForVersion(version) : null;
         }
 
-        Map<String, String> headers = new HashMap<>();
-        exchange.getRequestHeaders().forEach((key, values) -> {
-            if (!values.isEmpty()) {
-                headers.put(key.toLowerCase(), values.get(0));
+        long lastModified = -1;
+        if (lastModifiedMethod != null) {
+            Object value = lastModifiedInvoker.invoke(controller, ArgumentResolvers.resolve(lastModifiedResolvers, ctx));
+            if (value instanceof Instant instant) {
+                lastModified = instant.toEpochMilli();
+            } else if (value instanceof Date date) {
+                lastModified = date.getTime();
+            } else if (value instanceof Number number) {
+                lastModified = number.longValue();
             }
-        });
+        }
 
-        return new RequestContext(body, path, variables, queryParams, headers, exchange);
+        return new ResourceVersion(eTag, lastModified);
     }
 
     /**
-     * Invokes the controller method and normalizes the result into a HandlerResult.
+     * Invokes the controller method and normalizes the result into a HandlerResult. If the
+     * method returned a {@link java.util.concurrent.CompletionStage}, it is the body.
+     *
+     * @param controller the request's controller, from {@link #getController()}
      */
-    public HandlerResult invoke(RequestContext ctx) throws Exception {
-
-        Object controller = instanceSupplier.get();
-
-        Class<?>[] paramTypes = method.getParameterTypes();
-        Annotation[][] paramAnnotations = method.getParameterAnnotations();
-
-        Object[] args = new Object[paramTypes.length];
+    public HandlerResult invoke(Object controller, RequestContext ctx) throws Exception {
 
         // =============================
         // 1️⃣ Resolve method parameters
         // =============================
-        for (int i = 0; i < paramTypes.length; i++) {
-
-            Class<?> paramType = paramTypes[i];
-            Annotation[] annotations = paramAnnotations[i];
-
-            boolean resolved = false;
-
-            // ---- RequestContext ----
-            if (paramType == RequestContext.class) {
-                args[i] = ctx;
-                resolved = true;
-                continue;
-            }
-
-            for (Annotation a : annotations) {
-
-                // ---- @PathVariable ----
-                if (a instanceof PathVariable pv) {
-
-                    String name = pv.value();
-                    String raw = ctx.getPathVariables().get(name);
-
-                    if (raw == null) {
-                        throw new IllegalArgumentException(
-                                "Missing path variable: " + name
-                        );
-                    }
-
-                    args[i] = convert(raw, paramType);
-                    resolved = true;
-                    break;
-                }
-
-                // ---- @RequestParam ----
-                if (a instanceof RequestParam rp) {
-
-                    String name = !rp.value().isEmpty() ? rp.value() : null;
-                    String raw = name != null
-                            ? ctx.getQueryParams().get(name)
-                            : null;
-
-                    if (raw == null || raw.isEmpty()) {
-
-                        if (!rp.defaultValue().isEmpty()) {
-                            raw = rp.defaultValue();
-                        } else if (rp.required()) {
-                            throw new IllegalArgumentException(
-                                    "Missing required query param: " + name
-                            );
-                        } else {
-                            args[i] = null;
-                            resolved = true;
-                            break;
-                        }
-                    }
-
-                    args[i] = convert(raw, paramType);
-                    resolved = true;
-                    break;
-                }
-
-                // ---- @RequestBody ----
-                if (a instanceof RequestBody rb) {
-
-                    String body = ctx.getBody();
-
-                    if ((body == null || body.isBlank()) && rb.required()) {
-                        throw new IllegalArgumentException(
-                                "Missing required request body for parameter " + i
-                        );
-                    }
-
-                    Object obj = BodyConverter.convert(body, paramType);
-
-                    if (hasAnnotation(paramAnnotations[i], Valid.class)) {
-                        ValidatorEngine.validate(obj);
-                    }
-
-                    args[i] = obj;
-                    resolved = true;
-                    break;
-                }
-
-                // ---- @RequestHeader ----
-                if (a instanceof RequestHeader rh) {
-
-                    String name = rh.value().toLowerCase();
-                    String raw = ctx.getHeaders().get(name);
-
-                    if (raw == null || raw.isEmpty()) {
-
-                        if (!rh.defaultValue().isEmpty()) {
-                            raw = rh.defaultValue();
-                        } else if (rh.required()) {
-                            throw new IllegalArgumentException(
-                                    "Missing required header: " + rh.value()
-                            );
-                        } else {
-                            args[i] = null;
-                            resolved = true;
-                            break;
-                        }
-                    }
-
-                    args[i] = convert(raw, paramType);
-                    resolved = true;
-                    break;
-                }
-            }
-
-            if (!resolved) {
-                throw new IllegalArgumentException(
-                        "Cannot resolve parameter at index " + i +
-                                " of type " + paramType.getName() +
-                                " in method " +
-                                method.getDeclaringClass().getSimpleName() +
-                                "." + method.getName()
-                );
-            }
-        }
+        Object[] args = ArgumentResolvers.resolve(resolvers, ctx);
 
         // ============================
         // 2️⃣ Invoke controller method
         // ============================
-        method.setAccessible(true);
-        Object result = method.invoke(controller, args);
+        Object result = invoker.invoke(controller, args);
 
         // =========================
         // 3️⃣ Normalize the response
         // =========================
+        // A CompletionStage is returned as the body; its value goes through toResult on completion
+        return toResult(result);
+    }
+
+    /**
+     * Normalizes a controller's return value, or the value its {@code CompletionStage}
+     * completed with, into a HandlerResult.
+     */
+    public HandlerResult toResult(Object result) {
 
         // ---- ResponseEntity ----
         if (result instanceof ResponseEntity<?> re) {
@@ -281,44 +257,7 @@ public class RouteHandler {
             );
         }
 
-        // ---- @ResponseStatus ----
-        if (method.isAnnotationPresent(ResponseStatus.class)) {
-            int status = method.getAnnotation(ResponseStatus.class).value();
-            return new HandlerResult(status, Map.of(), result);
-        }
-
-        // ---- Default 200 OK ----
-        return new HandlerResult(200, Map.of(), result);
+        // ---- @ResponseStatus, or 200 OK ----
+        return new HandlerResult(defaultStatus, Map.of(), result);
     }
-
-
-    private Object convert(String value, Class<?> targetType) {
-
-        if (value == null) {
-            return null;
-        }
-
-        if (targetType == String.class) {
-            return value;
-        }
-        if (targetType == int.class || targetType == Integer.class) {
-            return Integer.parseInt(value);
-        }
-        if (targetType == long.class || targetType == Long.class) {
-            return Long.parseLong(value);
-        }
-        if (targetType == boolean.class || targetType == Boolean.class) {
-            return Boolean.parseBoolean(value);
-        }
-
-        throw new RuntimeException("Unsupported parameter type: " + targetType.getName());
-    }
-
-    private boolean hasAnnotation(Annotation[] annotations, Class<?> type) {
-        for (Annotation a : annotations) {
-            if (a.annotationType() == type) return true;
-        }
-        return false;
-    }
-
-}
\ No newline at end of file
+}
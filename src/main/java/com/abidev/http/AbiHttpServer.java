@@ -1,106 +1,739 @@
 package com.abidev.http;
 
+import com.abidev.annotations.Compress;
 import com.abidev.framework.AbiFramework;
-import com.sun.net.httpserver.HttpServer;
-import tools.jackson.databind.ObjectMapper;
+import com.abidev.framework.StartupTimeline;
+import com.abidev.http.compression.CompressionConfig;
+import com.abidev.http.compression.ContentEncoding;
+import com.abidev.http.compression.ResponseCompressor;
+import com.abidev.http.limit.AdmissionController;
+import com.abidev.http.sse.SseEmitter;
+import com.abidev.http.transport.HttpTransport;
+import com.abidev.http.transport.JdkHttpTransport;
+import com.abidev.http.transport.ServerExchange;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AbiHttpServer {
 
     private final AbiFramework framework;
-    private HttpServer server;
+    private final ExecutionMode executionMode;
+    private final int poolSize;
+    private final int queueCapacity;
+    private final int backlog;
+    private final HttpTransport transport;
+    private final ResponseCompressor compressor;
+    private final int sseThreads;
+    private final AdmissionController admission;
+    private final boolean etags;
 
-    private static final ObjectMapper mapper = new ObjectMapper();
+    private ExecutorService executor;
+    private ExecutorService sseExecutor;
+    private boolean running;
+
+    /**
+     * When the current request was handed to the executor, see {@link #timedExecutor(Executor)}.
+     */
+    private static final ThreadLocal<long[]> DISPATCHED_AT = ThreadLocal.withInitial(() -> new long[1]);
 
     public AbiHttpServer(AbiFramework framework) {
-        this.framework = framework;
+        this(builder(framework));
+    }
+
+    private AbiHttpServer(Builder builder) {
+        this.framework = builder.framework;
+        this.executionMode = builder.executionMode;
+        this.poolSize = builder.poolSize;
+        this.queueCapacity = builder.queueCapacity;
+        this.backlog = builder.backlog;
+        this.transport = builder.transport != null ? builder.transport : new JdkHttpTransport();
+        this.compressor = builder.compression != null ? new ResponseCompressor(builder.compression) : null;
+        this.sseThreads = builder.sseThreads;
+        this.admission = builder.admission;
+        this.etags = builder.etags;
+    }
+
+    public static Builder builder(AbiFramework framework) {
+        return new Builder(framework);
     }
 
     public void start(int port) throws Exception {
 
-        server = HttpServer.create(new InetSocketAddress(port), 0);
+        long bind = System.nanoTime();
+        executor = createExecutor();
+        sseExecutor = Executors.newFixedThreadPool(sseThreads, new DaemonThreadFactory("abi-sse-"));
+        Executor dispatch = executor != null && admission != null ? timedExecutor(executor) : executor;
+        transport.start(new InetSocketAddress(port), backlog, dispatch, this::handle);
+        running = true;
 
-        server.createContext("/", exchange -> {
+        StartupTimeline timeline = framework.getStartupTimeline();
+        StartupTimeline.Phase phase = timeline.record("server bind", bind);
 
-            String path = exchange.getRequestURI().getPath();
-            String method = exchange.getRequestMethod();
+        System.out.println("🚀 AbiFramework running on http://localhost:" + port
+                + " (" + transport.name() + ", " + executionMode + ")");
+        System.out.printf("\tserver bind %.1f ms, %.1f ms since scan started%n",
+                phase.nanos() / 1_000_000.0, timeline.elapsedNanos() / 1_000_000.0);
+    }
 
-            if (!Arrays.asList("GET", "POST").contains(method)) {
-                exchange.sendResponseHeaders(405, -1);
-                exchange.close();
+    private void handle(ServerExchange exchange) throws IOException {
+
+        String path = exchange.getRequestPath();
+
+        // =========================
+        // ADMISSION CONTROL
+        // =========================
+        AdmissionController.Permit permit = null;
+        if (admission != null) {
+            permit = admission.tryAcquire(queueTime());
+            if (permit == null) {
+                reject(exchange);
                 return;
             }
+        }
 
-            HandlerResult result;
+        HandlerResult result;
+        boolean pending = false;
 
-            try {
-                result = framework.callRoute(path, exchange);
-
-            } catch (Exception e) {
-                e.printStackTrace();
-                result = new HandlerResult(
-                        500,
-                        Map.of("Content-Type", "text/plain"),
-                        "Internal Server Error"
-                );
+        try {
+            result = framework.callRoute(path, exchange);
+            pending = result.body() instanceof CompletionStage<?>;
+
+        } catch (Exception e) {
+            result = internalError(e);
+        } finally {
+            // Only the handler's latency feeds the limit; writing depends on the client
+            if (permit != null && !pending) {
+                permit.release();
             }
+        }
 
-            if (result.headers() != null) {
-                result.headers().forEach(
-                        (k, v) -> exchange.getResponseHeaders().add(k, v)
-                );
+        if (result.body() instanceof CompletionStage<?> stage) {
+            // The controller answers later: free this thread, write from the one completing the stage.
+            // The permit is held until then, the handler's latency includes the wait
+            AdmissionController.Permit held = permit;
+            stage.whenComplete((completed, failure) -> {
+                if (held != null) {
+                    held.release();
+                }
+                try {
+                    write(exchange, failure == null ? (HandlerResult) completed : internalError(failure));
+                } catch (IOException | RuntimeException e) {
+                    exchange.close();
+                }
+            });
+            return;
+        }
+
+        write(exchange, result);
+    }
+
+    private static HandlerResult internalError(Throwable e) {
+        e.printStackTrace();
+        return new HandlerResult(
+                500,
+                Map.of("Content-Type", "text/plain"),
+                "Internal Server Error"
+        );
+    }
+
+    private void write(ServerExchange exchange, HandlerResult result) throws IOException {
+
+        if (result.headers() != null) {
+            result.headers().forEach(exchange::addResponseHeader);
+        }
+
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            writeHead(exchange, result);
+            return;
+        }
+
+        if (result.body() instanceof SseEmitter emitter) {
+            writeSse(exchange, result.status(), emitter);
+            return;
+        }
+
+        Compress compress = result.route() != null ? result.route().getCompress() : null;
+
+        if (StreamingBody.isStreamable(result.body())) {
+            writeStreaming(exchange, result.status(), StreamingBody.from(result.body(), streamingFormat(exchange)), compress);
+            return;
+        }
+
+        if (result.body() instanceof FileRegion region) {
+            writeFile(exchange, result.status(), region);
+            return;
+        }
+
+        byte[] bodyBytes = serializeBody(result.body(), exchange);
+
+        // Decided before the preconditions, so that a 304 carries the same Vary and ETag
+        ContentEncoding encoding = compressor != null && bodyBytes.length > 0
+                ? compressor.select(exchange, result.status(), bodyBytes.length, compress)
+                : null;
+
+        if (result.status() == 200 && "GET".equals(exchange.getRequestMethod())
+                && isNotModified(exchange, bodyBytes)) {
+            if (encoding != null) {
+                tagEncoding(exchange, encoding);
             }
+            writeNotModified(exchange);
+            return;
+        }
+
+        bodyBytes = compress(exchange, bodyBytes, encoding);
 
-            byte[] bodyBytes = serializeBody(result.body(), exchange);
-            exchange.sendResponseHeaders(
-                    result.status(),
-                    bodyBytes.length
-            );
+        exchange.sendResponseHeaders(
+                result.status(),
+                bodyBytes.length > 0 ? bodyBytes.length : -1
+        );
 
-            try (OutputStream os = exchange.getResponseBody()) {
-                os.write(bodyBytes);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bodyBytes);
+        }
+
+        exchange.close();
+    }
+
+    /**
+     * Answers HEAD with the headers the GET response would have, without serializing the body.
+     */
+    private void writeHead(ServerExchange exchange, HandlerResult result) throws IOException {
+        Object body = result.body();
+
+        try {
+            if (body instanceof SseEmitter emitter) {
+                setDefaultContentType(exchange, "text/event-stream; charset=UTF-8");
+                emitter.complete();
+            } else if (StreamingBody.isStreamable(body)) {
+                try (StreamingBody streaming = StreamingBody.from(body, streamingFormat(exchange))) {
+                    setDefaultContentType(exchange, streaming.getFormat().contentType());
+                }
+            } else if (body instanceof FileRegion) {
+                setDefaultContentType(exchange, "application/octet-stream");
+            } else if (body != null) {
+                setDefaultContentType(exchange, ResponseSerializer.contentType(body));
             }
 
+            exchange.sendResponseHeaders(result.status(), -1);
+        } finally {
             exchange.close();
-        });
+        }
+    }
 
-        server.start();
-        System.out.println("🚀 AbiFramework running on http://localhost:" + port);
+    /**
+     * Answers 503 without touching the framework.
+     */
+    private void reject(ServerExchange exchange) throws IOException {
+        byte[] body = "Service Unavailable".getBytes(StandardCharsets.UTF_8);
+        exchange.addResponseHeader("Content-Type", "text/plain; charset=UTF-8");
+        exchange.addResponseHeader("Retry-After", Integer.toString(admission.getRetryAfterSeconds()));
+        exchange.sendResponseHeaders(503, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+        exchange.close();
     }
 
-    private byte[] serializeBody(Object body, com.sun.net.httpserver.HttpExchange exchange) {
+    /**
+     * @return how long the current request waited for a worker, or 0 if it was not queued
+     */
+    private static long queueTime() {
+        long dispatchedAt = DISPATCHED_AT.get()[0];
+        return dispatchedAt == 0 ? 0 : System.nanoTime() - dispatchedAt;
+    }
 
-        if (body == null) {
-            exchange.getResponseHeaders().add("Content-Type", "text/plain");
-            return new byte[0];
+    /**
+     * Wraps the executor so handlers can tell how long their request sat in the queue.
+     */
+    private static Executor timedExecutor(Executor executor) {
+        return task -> {
+            long dispatchedAt = System.nanoTime();
+            executor.execute(() -> {
+                long[] slot = DISPATCHED_AT.get();
+                slot[0] = dispatchedAt;
+                try {
+                    task.run();
+                } finally {
+                    slot[0] = 0;
+                }
+            });
+        };
+    }
+
+    /**
+     * Compresses a buffered body with the encoding chosen by the compressor.
+     *
+     * @param encoding the encoding, or null to send the body as is
+     */
+    private byte[] compress(ServerExchange exchange, byte[] body, ContentEncoding encoding) throws IOException {
+        if (encoding == null) {
+            return body;
+        }
+
+        byte[] compressed = compressor.compress(body, encoding);
+        if (compressed == null) {
+            return body;
+        }
+
+        exchange.addResponseHeader("Content-Encoding", encoding.token());
+        tagEncoding(exchange, encoding);
+        return compressed;
+    }
+
+    /**
+     * The compressed bytes are a different representation and need their own ETag.
+     */
+    private static void tagEncoding(ServerExchange exchange, ContentEncoding encoding) {
+        List<String> eTag = exchange.getResponseHeaders().get("ETag");
+        if (eTag != null && !eTag.isEmpty()) {
+            eTag.set(0, ConditionalRequests.withEncoding(eTag.get(0), encoding.token()));
         }
+    }
+
+    // =========================
+    // CONDITIONAL GET
+    // =========================
+
+    /**
+     * Evaluates the request's preconditions against the ETag and Last-Modified set by the
+     * controller. With {@link Builder#etags(boolean)}, responses without an ETag get one
+     * computed from the serialized body.
+     */
+    private boolean isNotModified(ServerExchange exchange, byte[] body) {
+        Map<String, List<String>> headers = exchange.getResponseHeaders();
 
+        List<String> eTags = headers.get("ETag");
+        String eTag = eTags != null && !eTags.isEmpty() ? eTags.get(0) : null;
+        if (eTag == null && etags) {
+            eTag = ConditionalRequests.eTag(body);
+            exchange.addResponseHeader("ETag", eTag);
+        }
+
+        List<String> lastModified = headers.get("Last-Modified");
+        long modified = lastModified != null && !lastModified.isEmpty()
+                ? ConditionalRequests.parseDate(lastModified.get(0))
+                : -1;
+
+        if (eTag == null && modified < 0) {
+            return false;
+        }
+        return ConditionalRequests.isNotModified(exchange, eTag, modified);
+    }
+
+    private static void writeNotModified(ServerExchange exchange) throws IOException {
+        // A 304 carries the validators but no representation metadata
+        exchange.getResponseHeaders().remove("Content-Type");
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+    }
+
+    /**
+     * Writes a streamed body with chunked transfer encoding, one element at a time.
+     * Compressed streams are sync-flushed along with the underlying body.
+     */
+    private void writeStreaming(ServerExchange exchange, int status, StreamingBody body, Compress compress) throws IOException {
+        try (body) {
+            setDefaultContentType(exchange, body.getFormat().contentType());
+
+            ContentEncoding encoding = compressor != null ? compressor.select(exchange, status, -1, compress) : null;
+            if (encoding != null) {
+                exchange.addResponseHeader("Content-Encoding", encoding.token());
+            }
+
+            exchange.sendResponseHeaders(status, 0);
+
+            OutputStream os = encoding != null
+                    ? compressor.wrap(exchange.getResponseBody(), encoding)
+                    : exchange.getResponseBody();
+            try {
+                body.writeTo(os, ResponseSerializer.writer());
+            } catch (IOException | RuntimeException e) {
+                // Headers are already sent: closing normally would end the chunked body and
+                // make the cut-short response look complete. Drop the connection instead and
+                // let the transport report the failure
+                exchange.abort();
+                throw e;
+            }
+            os.close();
+            exchange.close();
+        }
+    }
+
+    /**
+     * Starts an event stream. The exchange stays open after the handler returns; the emitter
+     * writes its events on the SSE threads and closes the exchange when it completes.
+     */
+    private void writeSse(ServerExchange exchange, int status, SseEmitter emitter) throws IOException {
+        exchange.getResponseHeaders().remove("Content-Type");
+        exchange.addResponseHeader("Content-Type", "text/event-stream; charset=UTF-8");
+        exchange.addResponseHeader("Cache-Control", "no-cache");
+        // Tell buffering reverse proxies to pass events through immediately
+        exchange.addResponseHeader("X-Accel-Buffering", "no");
+
+        try {
+            exchange.sendResponseHeaders(status, 0);
+        } catch (IOException e) {
+            emitter.complete();
+            exchange.close();
+            throw e;
+        }
+
+        emitter.attach(exchange, sseExecutor);
+    }
+
+    /**
+     * Sends a file region without reading it into memory.
+     */
+    private void writeFile(ServerExchange exchange, int status, FileRegion region) throws IOException {
+        FileChannel channel;
         try {
-            // String → text/plain
-            if (body instanceof String s) {
-                exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=UTF-8");
-                return s.getBytes(StandardCharsets.UTF_8);
+            channel = FileChannel.open(region.path(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            e.printStackTrace();
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+            return;
+        }
+
+        try {
+            setDefaultContentType(exchange, "application/octet-stream");
+
+            if (region.length() == 0) {
+                channel.close();
+                exchange.sendResponseHeaders(status, -1);
+            } else {
+                exchange.sendResponseHeaders(status, region.length());
+                exchange.sendFile(channel, region.position(), region.length());
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static StreamingBody.Format streamingFormat(ServerExchange exchange) {
+        String accept = exchange.getRequestHeader("Accept");
+        return accept != null && accept.contains("application/x-ndjson")
+                ? StreamingBody.Format.NDJSON
+                : StreamingBody.Format.JSON_ARRAY;
+    }
+
+    /**
+     * Stops the server, waiting up to the given number of seconds for active exchanges to finish.
+     *
+     * @param delaySeconds the maximum time to wait for active exchanges
+     */
+    public void stop(int delaySeconds) {
+        if (running) {
+            transport.stop(delaySeconds);
+            running = false;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+        if (sseExecutor != null) {
+            sseExecutor.shutdownNow();
+            sseExecutor = null;
+        }
+    }
+
+    /**
+     * Runs a training boot for an AppCDS archive: starts the server, sends one GET request over
+     * loopback to each GET route, with path variables set to {@code 1}, then stops the server.
+     * The classes loaded along the way (the framework, the controllers and the request path)
+     * are what the archive is made of:
+     * <pre>
+     * java -XX:ArchiveClassesAtExit=app.jsa -cp ... com.abidev.Main --training
+     * java -XX:SharedArchiveFile=app.jsa -cp ... com.abidev.Main
+     * </pre>
+     * The classpath must be made of jars, the JDK does not archive classes loaded from
+     * directories; the archive is only valid for the same JDK and classpath.
+     *
+     * @param port the port to train on
+     * @return the number of routes that answered
+     */
+    public int train(int port) throws Exception {
+        start(port);
+        int answered = 0;
+        try {
+            for (String pattern : framework.getRoutes(HttpMethod.GET)) {
+                if (trainingRequest(port, pattern.replaceAll("\\{[^/}]*}", "1"))) {
+                    answered++;
+                }
             }
+        } finally {
+            stop(0);
+        }
+        System.out.println("✔ Training run: " + answered + " of "
+                + framework.getRoutes(HttpMethod.GET).size() + " GET routes answered");
+        return answered;
+    }
 
-            // byte[] → binary
-            if (body instanceof byte[] bytes) {
-                exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
-                return bytes;
+    /**
+     * @return whether the route answered; event streams are cut off after two seconds
+     */
+    private static boolean trainingRequest(int port, String path) {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            // The first requests of a cold JVM are slow
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(("GET " + path + " HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Accept-Encoding: gzip\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[8192];
+            boolean answered = false;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            try {
+                int read;
+                while (System.nanoTime() < deadline && (read = in.read(buffer)) != -1) {
+                    answered |= read > 0;
+                }
+            } catch (SocketTimeoutException e) {
+                // An event stream with nothing to send yet
             }
+            return answered;
+        } catch (IOException e) {
+            System.out.println("⚠ Training request failed: GET " + path + " -> " + e);
+            return false;
+        }
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * @return the admission controller, or null if admission control is disabled
+     */
+    public AdmissionController getAdmissionController() {
+        return admission;
+    }
+
+    private ExecutorService createExecutor() {
+        switch (executionMode) {
+            case PLATFORM_POOL:
+                return new ThreadPoolExecutor(
+                        poolSize,
+                        poolSize,
+                        60L,
+                        TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity),
+                        new WorkerThreadFactory(),
+                        new ThreadPoolExecutor.CallerRunsPolicy()
+                );
+            case VIRTUAL_THREADS:
+                return newVirtualThreadExecutor();
+            default:
+                // Handlers run on the dispatcher thread of the JDK server
+                return null;
+        }
+    }
+
+    /**
+     * Creates a virtual-thread-per-task executor. Looked up reflectively so the framework
+     * still compiles and runs on Java 17, where the other modes remain available.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(
+                    "Virtual threads require Java 21 or newer (running on "
+                            + Runtime.version() + ")", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to create virtual thread executor", e);
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "abi-worker-" + counter.incrementAndGet());
+            return thread;
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
 
-            // Object → JSON
-            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
-            return mapper.writeValueAsBytes(body);
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private byte[] serializeBody(Object body, ServerExchange exchange) {
+
+        if (body == null) {
+            return new byte[0];
+        }
+
+        try {
+            byte[] bytes = ResponseSerializer.serialize(body);
+            setDefaultContentType(exchange, ResponseSerializer.contentType(body));
+            return bytes;
 
         } catch (Exception e) {
             e.printStackTrace();
-            exchange.getResponseHeaders().add("Content-Type", "text/plain");
+            exchange.getResponseHeaders().put("Content-Type", new ArrayList<>(List.of("text/plain")));
             return "Serialization error".getBytes(StandardCharsets.UTF_8);
         }
     }
+
+    /**
+     * Sets the Content-Type unless the handler already chose one.
+     */
+    private static void setDefaultContentType(ServerExchange exchange, String contentType) {
+        if (!exchange.getResponseHeaders().containsKey("Content-Type")) {
+            exchange.addResponseHeader("Content-Type", contentType);
+        }
+    }
+
+    public static class Builder {
+        private final AbiFramework framework;
+        private ExecutionMode executionMode = ExecutionMode.PLATFORM_POOL;
+        private int poolSize = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        private int queueCapacity = 1024;
+        private int backlog = 0;
+        private HttpTransport transport;
+        private CompressionConfig compression;
+        private int sseThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        private AdmissionController admission;
+        private boolean etags;
+
+        private Builder(AbiFramework framework) {
+            this.framework = framework;
+        }
+
+        /**
+         * Which threads run the handlers; defaults to {@link ExecutionMode#PLATFORM_POOL}.
+         */
+        public Builder executionMode(ExecutionMode executionMode) {
+            this.executionMode = executionMode;
+            return this;
+        }
+
+        /**
+         * Number of platform threads used in {@link ExecutionMode#PLATFORM_POOL} mode.
+         */
+        public Builder poolSize(int poolSize) {
+            if (poolSize <= 0) {
+                throw new IllegalArgumentException("poolSize must be positive: " + poolSize);
+            }
+            this.poolSize = poolSize;
+            return this;
+        }
+
+        /**
+         * Number of requests that can wait for a worker in {@link ExecutionMode#PLATFORM_POOL} mode.
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Maximum number of pending connections on the listening socket; 0 uses the system default.
+         */
+        public Builder backlog(int backlog) {
+            if (backlog < 0) {
+                throw new IllegalArgumentException("backlog must not be negative: " + backlog);
+            }
+            this.backlog = backlog;
+            return this;
+        }
+
+        /**
+         * Network engine to use; defaults to {@link JdkHttpTransport}.
+         */
+        public Builder transport(HttpTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * Enables gzip/deflate compression of response bodies; disabled by default.
+         */
+        public Builder compression(CompressionConfig compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * Number of threads writing Server-Sent Events. Events are written without blocking
+         * the sender, so a few threads serve many streams.
+         */
+        public Builder sseThreads(int sseThreads) {
+            if (sseThreads <= 0) {
+                throw new IllegalArgumentException("sseThreads must be positive: " + sseThreads);
+            }
+            this.sseThreads = sseThreads;
+            return this;
+        }
+
+        /**
+         * Enables admission control: requests beyond an adaptive concurrency limit, or that
+         * waited too long for a worker, are answered with 503 and {@code Retry-After}.
+         */
+        public Builder admissionControl(AdmissionController admission) {
+            this.admission = admission;
+            return this;
+        }
+
+        /**
+         * Adds an ETag computed from the serialized body to buffered 200 responses to GET, and
+         * answers a matching {@code If-None-Match} with 304. The body is still produced, but
+         * not compressed or sent; routes annotated with
+         * {@link com.abidev.annotations.ConditionalGet} avoid producing it at all.
+         * Disabled by default.
+         */
+        public Builder etags(boolean etags) {
+            this.etags = etags;
+            return this;
+        }
+
+        public AbiHttpServer build() {
+            if (executionMode == ExecutionMode.VIRTUAL_THREADS) {
+                // Fail at build time rather than on start
+                newVirtualThreadExecutor().shutdown();
+            }
+            return new AbiHttpServer(this);
+        }
+    }
 }
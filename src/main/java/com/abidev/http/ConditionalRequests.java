@@ -0,0 +1,137 @@
+package com.abidev.http;
+
+import com.abidev.http.transport.ServerExchange;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * ETag and Last-Modified helpers for conditional GET (RFC 9110, section 13).
+ */
+public final class ConditionalRequests {
+
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private static final String[] ENCODING_SUFFIXES = {"-gzip", "-deflate"};
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * Computes a strong ETag from the body. CRC32C and CRC32 are both hardware accelerated;
+     * together with the length they make accidental collisions negligible.
+     */
+    public static String eTag(byte[] body) {
+        CRC32C crc32c = new CRC32C();
+        crc32c.update(body);
+        CRC32 crc32 = new CRC32();
+        crc32.update(body);
+
+        long hash = (crc32c.getValue() << 32) | crc32.getValue();
+        return "\"" + Long.toHexString(hash) + "-" + Integer.toHexString(body.length) + "\"";
+    }
+
+    /**
+     * Turns a controller-supplied version (a revision number, a hash, ...) into an ETag.
+     */
+    public static String eTagForVersion(Object version) {
+        String value = String.valueOf(version);
+        if (value.startsWith("\"") || value.startsWith("W/\"")) {
+            return value;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c <= 0x20 || c == '"' || c >= 0x7f) {
+                // Not allowed in an entity tag: hash it instead
+                return eTag(value.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            }
+        }
+        return "\"" + value + "\"";
+    }
+
+    /**
+     * Marks the ETag of a compressed representation, which differs byte for byte from the
+     * uncompressed one.
+     */
+    public static String withEncoding(String eTag, String encoding) {
+        if (eTag.startsWith("W/") || !eTag.endsWith("\"")) {
+            return eTag;
+        }
+        return eTag.substring(0, eTag.length() - 1) + "-" + encoding + "\"";
+    }
+
+    /**
+     * Evaluates {@code If-None-Match}, or {@code If-Modified-Since} if the former is absent.
+     *
+     * @param eTag         the current ETag, or null
+     * @param lastModified the last modification time in epoch milliseconds, or a negative value
+     * @return true if the client's copy is current and a 304 can be sent
+     */
+    public static boolean isNotModified(ServerExchange exchange, String eTag, long lastModified) {
+        String ifNoneMatch = exchange.getRequestHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return eTag != null && matches(ifNoneMatch, eTag);
+        }
+
+        String ifModifiedSince = exchange.getRequestHeader("If-Modified-Since");
+        if (ifModifiedSince != null && lastModified >= 0) {
+            long since = parseDate(ifModifiedSince);
+            // HTTP dates have second precision
+            return since >= 0 && lastModified / 1000 * 1000 <= since;
+        }
+        return false;
+    }
+
+    /**
+     * Weak comparison of an {@code If-None-Match} list against an ETag. Tags that only differ
+     * by a content-coding suffix added by {@link #withEncoding} are considered equal.
+     */
+    static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch.trim().equals("*")) {
+            return true;
+        }
+
+        String current = opaqueTag(eTag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            if (opaqueTag(candidate.trim()).equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String tag) {
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        for (String suffix : ENCODING_SUFFIXES) {
+            if (tag.endsWith(suffix)) {
+                return tag.substring(0, tag.length() - suffix.length());
+            }
+        }
+        return tag;
+    }
+
+    /**
+     * @return the epoch milliseconds of an HTTP date, or -1 if it is invalid
+     */
+    public static long parseDate(String date) {
+        try {
+            return Instant.from(HTTP_DATE.parse(date)).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    public static String formatDate(long epochMillis) {
+        return HTTP_DATE.format(Instant.ofEpochMilli(epochMillis));
+    }
+}
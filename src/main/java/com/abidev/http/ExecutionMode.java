@@ -0,0 +1,25 @@
+package com.abidev.http;
+
+/**
+ * Defines which threads run the request handlers of {@link AbiHttpServer}.
+ */
+public enum ExecutionMode {
+
+    /**
+     * Handlers run on the single dispatcher thread of the HTTP server.
+     * A slow handler blocks every other request.
+     */
+    DISPATCHER,
+
+    /**
+     * Handlers run on a bounded pool of platform threads.
+     * When the queue is full, the dispatcher thread runs the request itself,
+     * which slows down accepting new connections (back-pressure).
+     */
+    PLATFORM_POOL,
+
+    /**
+     * Every request runs on its own virtual thread. Requires Java 21 or newer.
+     */
+    VIRTUAL_THREADS
+}
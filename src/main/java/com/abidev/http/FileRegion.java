@@ -0,0 +1,20 @@
+package com.abidev.http;
+
+import java.nio.file.Path;
+
+/**
+ * A response body backed by a region of a file. The server sends it with
+ * {@link com.abidev.http.transport.ServerExchange#sendFile}, without reading the file into memory.
+ *
+ * @param path     the file to send
+ * @param position the offset of the first byte
+ * @param length   the number of bytes to send
+ */
+public record FileRegion(Path path, long position, long length) {
+
+    public FileRegion {
+        if (position < 0 || length < 0) {
+            throw new IllegalArgumentException("Invalid file region: " + position + "+" + length);
+        }
+    }
+}
@@ -1,7 +1,19 @@
 package com.abidev.http;
 
+import com.abidev.helpers.RouteHandler;
+
 import java.util.Map;
 
-public record HandlerResult(int status, Map<String, String> headers, Object body) {
+/**
+ * @param route the route that produced the result, or null for results not produced by a route
+ */
+public record HandlerResult(int status, Map<String, String> headers, Object body, RouteHandler route) {
+
+    public HandlerResult(int status, Map<String, String> headers, Object body) {
+        this(status, headers, body, null);
+    }
 
+    public HandlerResult withRoute(RouteHandler route) {
+        return new HandlerResult(status, headers, body, route);
+    }
 }
@@ -0,0 +1,30 @@
+package com.abidev.http;
+
+/**
+ * HTTP request methods routes can be bound to.
+ */
+public enum HttpMethod {
+    GET,
+    HEAD,
+    POST,
+    PUT,
+    PATCH,
+    DELETE,
+    OPTIONS;
+
+    /**
+     * @return the method, or null if the name is not one of the supported methods
+     */
+    public static HttpMethod resolve(String name) {
+        return switch (name) {
+            case "GET" -> GET;
+            case "HEAD" -> HEAD;
+            case "POST" -> POST;
+            case "PUT" -> PUT;
+            case "PATCH" -> PATCH;
+            case "DELETE" -> DELETE;
+            case "OPTIONS" -> OPTIONS;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package com.abidev.http;
+
+import com.abidev.annotations.ResponseStatus;
+
+/**
+ * Thrown when a request body exceeds the maximum size allowed for its route.
+ */
+@ResponseStatus(413)
+public class PayloadTooLargeException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long limit;
+
+    public PayloadTooLargeException(long limit) {
+        super("Request body exceeds the limit of " + limit + " bytes");
+        this.limit = limit;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+}
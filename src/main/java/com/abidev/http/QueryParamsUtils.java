@@ -1,10 +1,12 @@
 package com.abidev.http;
 
-import com.sun.net.httpserver.HttpExchange;
+import com.abidev.http.transport.ServerExchange;
 
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public final class QueryParamsUtils {
@@ -12,18 +14,51 @@ public final class QueryParamsUtils {
     private QueryParamsUtils() {
     }
 
-    public static Map<String, String> parse(HttpExchange exchange) {
-        Map<String, String> params = new HashMap<>();
-        String query = exchange.getRequestURI().getRawQuery();
+    /**
+     * Parses the query string keeping every value of repeated parameters, in order.
+     */
+    public static Map<String, List<String>> parseAll(ServerExchange exchange) {
+        return parseAll(exchange.getRawQuery());
+    }
+
+    /**
+     * Parses a raw query string keeping every value of repeated parameters, in order.
+     * Names and values are only decoded if they contain escapes.
+     */
+    public static Map<String, List<String>> parseAll(String query) {
+        if (query == null || query.isEmpty()) return Map.of();
 
-        if (query == null || query.isEmpty()) return params;
+        Map<String, List<String>> params = new HashMap<>();
+        int start = 0;
+        while (start <= query.length()) {
+            int end = query.indexOf('&', start);
+            if (end < 0) end = query.length();
 
-        for (String pair : query.split("&")) {
-            String[] parts = pair.split("=", 2);
-            String key = URLDecoder.decode(parts[0], StandardCharsets.UTF_8);
-            String value = parts.length > 1 ? URLDecoder.decode(parts[1], StandardCharsets.UTF_8) : "";
-            params.put(key, value);
+            if (end > start) {
+                int eq = query.indexOf('=', start);
+                String key;
+                String value;
+                if (eq < 0 || eq > end) {
+                    key = decode(query, start, end);
+                    value = "";
+                } else {
+                    key = decode(query, start, eq);
+                    value = decode(query, eq + 1, end);
+                }
+                params.computeIfAbsent(key, k -> new ArrayList<>(1)).add(value);
+            }
+            start = end + 1;
         }
         return params;
     }
+
+    private static String decode(String query, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = query.charAt(i);
+            if (c == '%' || c == '+') {
+                return URLDecoder.decode(query.substring(start, end), StandardCharsets.UTF_8);
+            }
+        }
+        return query.substring(start, end);
+    }
 }
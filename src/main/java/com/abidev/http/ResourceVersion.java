@@ -0,0 +1,36 @@
+package com.abidev.http;
+
+import com.abidev.http.transport.ServerExchange;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The validators of a resource, computed before its handler runs.
+ *
+ * @param eTag         the ETag, or null
+ * @param lastModified the last modification time in epoch milliseconds, or -1
+ */
+public record ResourceVersion(String eTag, long lastModified) {
+
+    /**
+     * @return true if the client's cached copy is current
+     */
+    public boolean isNotModified(ServerExchange exchange) {
+        return ConditionalRequests.isNotModified(exchange, eTag, lastModified);
+    }
+
+    /**
+     * @return the ETag and Last-Modified response headers
+     */
+    public Map<String, String> headers() {
+        Map<String, String> headers = new HashMap<>();
+        if (eTag != null) {
+            headers.put("ETag", eTag);
+        }
+        if (lastModified >= 0) {
+            headers.put("Last-Modified", ConditionalRequests.formatDate(lastModified));
+        }
+        return headers;
+    }
+}
@@ -1,5 +1,6 @@
 package com.abidev.http;
 
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -50,6 +51,19 @@ public class ResponseEntity<T> {
             return this;
         }
 
+        /**
+         * Sets the ETag. Requests whose {@code If-None-Match} matches it are answered with 304.
+         *
+         * @param eTag a version or hash; quotes are added unless present
+         */
+        public Builder<T> eTag(String eTag) {
+            return header("ETag", ConditionalRequests.eTagForVersion(eTag));
+        }
+
+        public Builder<T> lastModified(Instant lastModified) {
+            return header("Last-Modified", ConditionalRequests.formatDate(lastModified.toEpochMilli()));
+        }
+
         public ResponseEntity<T> body(T body) {
             return new ResponseEntity<>(status, headers, body);
         }
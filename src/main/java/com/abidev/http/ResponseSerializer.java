@@ -0,0 +1,64 @@
+package com.abidev.http;
+
+import com.abidev.http.sse.SseEmitter;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns controller results into response bytes: strings as UTF-8 text, byte arrays as is,
+ * anything else as JSON.
+ */
+public final class ResponseSerializer {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private ResponseSerializer() {
+    }
+
+    /**
+     * @return the body's bytes; empty for null
+     * @throws tools.jackson.core.JacksonException if JSON serialization fails
+     */
+    public static byte[] serialize(Object body) {
+        if (body == null) {
+            return new byte[0];
+        }
+        if (body instanceof String s) {
+            return s.getBytes(StandardCharsets.UTF_8);
+        }
+        if (body instanceof byte[] bytes) {
+            return bytes;
+        }
+        return mapper.writeValueAsBytes(body);
+    }
+
+    /**
+     * @return true if the body is written in one piece, as opposed to streamed, sent from a
+     *         file or kept open as an event stream
+     */
+    public static boolean isBuffered(Object body) {
+        return !StreamingBody.isStreamable(body) && !(body instanceof FileRegion) && !(body instanceof SseEmitter);
+    }
+
+    /**
+     * @return the Content-Type used when the controller did not set one
+     */
+    public static String contentType(Object body) {
+        if (body instanceof String) {
+            return "text/plain; charset=UTF-8";
+        }
+        if (body instanceof byte[]) {
+            return "application/octet-stream";
+        }
+        return "application/json; charset=UTF-8";
+    }
+
+    /**
+     * @return the writer used for streamed bodies
+     */
+    static ObjectWriter writer() {
+        return mapper.writer();
+    }
+}
@@ -0,0 +1,251 @@
+package com.abidev.http;
+
+import com.abidev.http.transport.ServerExchange;
+
+import java.io.IOException;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Serves the files of a directory under a URL prefix.
+ * <p>
+ * Large files are returned as a {@link FileRegion} and sent with zero-copy transfer where the
+ * transport supports it. Files up to {@code maxCachedFileSize} bytes are kept in a bounded
+ * LRU cache. Supports single {@code Range} requests (206/416), {@code If-Range},
+ * {@code Last-Modified} and {@code If-Modified-Since} (304).
+ */
+public class StaticResourceHandler {
+
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    private static final Map<String, String> CONTENT_TYPES = Map.ofEntries(
+            Map.entry("html", "text/html; charset=UTF-8"),
+            Map.entry("htm", "text/html; charset=UTF-8"),
+            Map.entry("css", "text/css; charset=UTF-8"),
+            Map.entry("js", "text/javascript; charset=UTF-8"),
+            Map.entry("mjs", "text/javascript; charset=UTF-8"),
+            Map.entry("json", "application/json; charset=UTF-8"),
+            Map.entry("txt", "text/plain; charset=UTF-8"),
+            Map.entry("svg", "image/svg+xml"),
+            Map.entry("png", "image/png"),
+            Map.entry("jpg", "image/jpeg"),
+            Map.entry("jpeg", "image/jpeg"),
+            Map.entry("gif", "image/gif"),
+            Map.entry("webp", "image/webp"),
+            Map.entry("ico", "image/x-icon"),
+            Map.entry("woff", "font/woff"),
+            Map.entry("woff2", "font/woff2"),
+            Map.entry("wasm", "application/wasm"),
+            Map.entry("pdf", "application/pdf"),
+            Map.entry("mp4", "video/mp4")
+    );
+
+    private final String urlPrefix;
+    private final Path directory;
+    private final long maxCachedFileSize;
+    private final long maxCacheBytes;
+
+    private final LinkedHashMap<Path, CachedFile> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+
+    public StaticResourceHandler(String urlPrefix, Path directory) {
+        this(urlPrefix, directory, 64 * 1024, 16 * 1024 * 1024);
+    }
+
+    /**
+     * @param urlPrefix         the URL prefix, e.g. {@code /assets}
+     * @param directory         the directory the files are served from
+     * @param maxCachedFileSize files up to this size are cached in memory; 0 disables the cache
+     * @param maxCacheBytes     the total size of the cache
+     */
+    public StaticResourceHandler(String urlPrefix, Path directory, long maxCachedFileSize, long maxCacheBytes) {
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("Not a directory: " + directory);
+        }
+        String prefix = urlPrefix.endsWith("/") ? urlPrefix.substring(0, urlPrefix.length() - 1) : urlPrefix;
+        this.urlPrefix = prefix.startsWith("/") || prefix.isEmpty() ? prefix : "/" + prefix;
+        this.directory = directory.toAbsolutePath().normalize();
+        this.maxCachedFileSize = maxCachedFileSize;
+        this.maxCacheBytes = maxCacheBytes;
+    }
+
+    public boolean matches(String path) {
+        return path.startsWith(urlPrefix + "/") || path.equals(urlPrefix);
+    }
+
+    public String getUrlPrefix() {
+        return urlPrefix;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Resolves the request against the directory.
+     *
+     * @return the result, or null if there is no such file
+     */
+    public HandlerResult handle(String path, ServerExchange exchange) throws IOException {
+
+        String relative = path.substring(urlPrefix.length());
+        while (relative.startsWith("/")) {
+            relative = relative.substring(1);
+        }
+
+        Path file = directory.resolve(relative).normalize();
+        if (!file.startsWith(directory)) {
+            // Path traversal: answer as if the file did not exist
+            return null;
+        }
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (attributes.isDirectory()) {
+                file = file.resolve("index.html");
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+
+        long size = attributes.size();
+        // HTTP dates have second precision
+        long modified = attributes.lastModifiedTime().toMillis() / 1000 * 1000;
+        String lastModified = ConditionalRequests.formatDate(modified);
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", contentType(file));
+        headers.put("Last-Modified", lastModified);
+        headers.put("Accept-Ranges", "bytes");
+
+        // =========================
+        // CONDITIONAL REQUEST
+        // =========================
+        if (ConditionalRequests.isNotModified(exchange, null, modified)) {
+            headers.remove("Content-Type");
+            return new HandlerResult(304, headers, null);
+        }
+
+        // =========================
+        // RANGE REQUEST
+        // =========================
+        String range = exchange.getRequestHeader("Range");
+        String ifRange = exchange.getRequestHeader("If-Range");
+
+        if (range != null && (ifRange == null || ifRange.equals(lastModified))) {
+            long[] bounds = parseRange(range, size);
+
+            if (bounds == UNSATISFIABLE) {
+                headers.put("Content-Range", "bytes */" + size);
+                return new HandlerResult(416, headers, null);
+            }
+
+            if (bounds != null) {
+                long length = bounds[1] - bounds[0] + 1;
+                headers.put("Content-Range", "bytes " + bounds[0] + "-" + bounds[1] + "/" + size);
+                return new HandlerResult(206, headers, body(file, size, modified, bounds[0], length));
+            }
+        }
+
+        return new HandlerResult(200, headers, body(file, size, modified, 0, size));
+    }
+
+    private Object body(Path file, long size, long modified, long position, long length) throws IOException {
+        if (size > maxCachedFileSize) {
+            return new FileRegion(file, position, length);
+        }
+
+        byte[] bytes = cachedBytes(file, size, modified);
+        if (position == 0 && length == bytes.length) {
+            return bytes;
+        }
+        return Arrays.copyOfRange(bytes, (int) position, (int) (position + length));
+    }
+
+    private synchronized byte[] cachedBytes(Path file, long size, long modified) throws IOException {
+        CachedFile cached = cache.get(file);
+        if (cached != null && cached.modified() == modified && cached.bytes().length == size) {
+            return cached.bytes();
+        }
+
+        byte[] bytes = Files.readAllBytes(file);
+
+        if (cached != null) {
+            cachedBytes -= cached.bytes().length;
+        }
+        cache.put(file, new CachedFile(bytes, modified));
+        cachedBytes += bytes.length;
+
+        var eldest = cache.entrySet().iterator();
+        while (cachedBytes > maxCacheBytes && eldest.hasNext()) {
+            cachedBytes -= eldest.next().getValue().bytes().length;
+            eldest.remove();
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Parses a single byte range.
+     *
+     * @return {start, end} (inclusive), null to ignore the header, or {@link #UNSATISFIABLE}
+     */
+    private static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            // Only single ranges are supported; serving the full content is always allowed
+            return null;
+        }
+
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) return null;
+
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix == 0) return UNSATISFIABLE;
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? size - 1 : Long.parseLong(spec.substring(dash + 1));
+                end = Math.min(end, size - 1);
+            }
+            if (start >= size || start > end) {
+                return UNSATISFIABLE;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String contentType(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot >= 0) {
+            String type = CONTENT_TYPES.get(name.substring(dot + 1).toLowerCase());
+            if (type != null) return type;
+        }
+        String guessed = URLConnection.guessContentTypeFromName(name);
+        return guessed != null ? guessed : "application/octet-stream";
+    }
+
+    private record CachedFile(byte[] bytes, long modified) {
+    }
+}
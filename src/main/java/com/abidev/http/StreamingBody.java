@@ -0,0 +1,142 @@
+package com.abidev.http;
+
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.SequenceWriter;
+import tools.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * A response body that is written element by element with chunked transfer encoding,
+ * so the full payload is never held in memory.
+ * <p>
+ * Controllers can return a {@link Stream} or an {@link Iterator} directly (written as a JSON
+ * array, or as NDJSON if the client accepts {@code application/x-ndjson}), or return a
+ * {@code StreamingBody} to choose the format explicitly.
+ */
+public final class StreamingBody implements AutoCloseable {
+
+    public enum Format {
+        JSON_ARRAY("application/json; charset=UTF-8"),
+        NDJSON("application/x-ndjson; charset=UTF-8");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+    }
+
+    private final Iterator<?> iterator;
+    private final AutoCloseable source;
+    private final Format format;
+
+    private StreamingBody(Iterator<?> iterator, AutoCloseable source, Format format) {
+        this.iterator = Objects.requireNonNull(iterator);
+        this.source = source;
+        this.format = format;
+    }
+
+    // ===== Factories =====
+
+    public static StreamingBody jsonArray(Stream<?> stream) {
+        return new StreamingBody(stream.iterator(), stream, Format.JSON_ARRAY);
+    }
+
+    public static StreamingBody jsonArray(Iterable<?> iterable) {
+        return new StreamingBody(iterable.iterator(), null, Format.JSON_ARRAY);
+    }
+
+    public static StreamingBody ndjson(Stream<?> stream) {
+        return new StreamingBody(stream.iterator(), stream, Format.NDJSON);
+    }
+
+    public static StreamingBody ndjson(Iterable<?> iterable) {
+        return new StreamingBody(iterable.iterator(), null, Format.NDJSON);
+    }
+
+    /**
+     * @return true if the body returned by a controller should be streamed
+     */
+    static boolean isStreamable(Object body) {
+        return body instanceof StreamingBody || body instanceof Stream<?> || body instanceof Iterator<?>;
+    }
+
+    /**
+     * Wraps a streamable controller result.
+     *
+     * @param body          a {@link StreamingBody}, {@link Stream} or {@link Iterator}
+     * @param defaultFormat the format used for plain streams and iterators
+     */
+    static StreamingBody from(Object body, Format defaultFormat) {
+        if (body instanceof StreamingBody sb) {
+            return sb;
+        }
+        if (body instanceof Stream<?> stream) {
+            return new StreamingBody(stream.iterator(), stream, defaultFormat);
+        }
+        if (body instanceof Iterator<?> iterator) {
+            return new StreamingBody(iterator, null, defaultFormat);
+        }
+        throw new IllegalArgumentException("Not a streamable body: " + body.getClass().getName());
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Serializes the elements one at a time. Only the generator's own buffer is held in memory.
+     * The output stream is left open.
+     * <p>
+     * If an element fails, the sequence is left unterminated (no closing {@code ]}), so the
+     * output never looks complete.
+     */
+    void writeTo(OutputStream out, ObjectWriter writer) throws IOException {
+        // Let the generator fill its buffer instead of flushing after every element: each flush
+        // becomes its own chunk, and a sync flush of the compressor, on the wire
+        ObjectWriter elementWriter = writer
+                .without(StreamWriteFeature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        boolean empty = true;
+
+        if (format == Format.NDJSON) {
+            elementWriter = elementWriter.withRootValueSeparator("\n");
+        }
+
+        SequenceWriter sequence = format == Format.NDJSON
+                ? elementWriter.writeValues(out)
+                : elementWriter.writeValuesAsArray(out);
+
+        while (iterator.hasNext()) {
+            sequence.write(iterator.next());
+            empty = false;
+        }
+        sequence.close();
+
+        if (format == Format.NDJSON && !empty) {
+            // The separator is only written between values; end the last line too
+            out.write('\n');
+        }
+    }
+
+    @Override
+    public void close() {
+        if (source != null) {
+            try {
+                source.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.abidev.http.cache;
+
+import java.util.Map;
+
+/**
+ * A serialized response.
+ *
+ * @param status    the status code
+ * @param headers   the response headers, Content-Type included
+ * @param body      the serialized body
+ * @param expiresAt when the entry stops being served, in {@link System#nanoTime()} units
+ */
+public record CachedResponse(int status, Map<String, String> headers, byte[] body, long expiresAt) {
+
+    boolean isExpired(long now) {
+        return now - expiresAt >= 0;
+    }
+}
@@ -0,0 +1,131 @@
+package com.abidev.http.cache;
+
+import com.abidev.annotations.Cacheable;
+import com.abidev.http.transport.ServerExchange;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Response cache of one route: a size-aware LRU bounded by entry count and total body bytes,
+ * with a fixed time to live.
+ */
+public class ResponseCache {
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final String[] queryParams;
+    private final String[] headers;
+
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ResponseCache(Cacheable config) {
+        this(TimeUnit.SECONDS.toNanos(config.ttlSeconds()), config.maxEntries(), config.maxBytes(),
+                config.queryParams(), config.headers());
+    }
+
+    public ResponseCache(long ttlNanos, int maxEntries, long maxBytes, String[] queryParams, String[] headers) {
+        this.ttlNanos = ttlNanos;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.queryParams = queryParams.clone();
+        this.headers = headers.clone();
+    }
+
+    /**
+     * Builds the key of a request: method, path, then the configured query parameters and
+     * headers in declaration order.
+     *
+     * @param queryParams looks up the first value of a query parameter
+     */
+    public String key(String method, String path, Function<String, String> queryParams, ServerExchange exchange) {
+        StringBuilder key = new StringBuilder(method.length() + path.length() + 16)
+                .append(method).append(' ').append(path);
+
+        for (String name : this.queryParams) {
+            String value = queryParams.apply(name);
+            // Separators that can't appear in a decoded path keep "a=" and absent apart
+            key.append('\u0000').append(value != null ? value : "\u0001");
+        }
+        for (String name : this.headers) {
+            String value = exchange.getRequestHeader(name);
+            key.append('\u0000').append(value != null ? value : "\u0001");
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return the cached response, or null on a miss
+     */
+    public CachedResponse get(String key) {
+        CachedResponse response;
+        synchronized (this) {
+            response = entries.get(key);
+            if (response != null && response.isExpired(System.nanoTime())) {
+                entries.remove(key);
+                cachedBytes -= response.body().length;
+                response = null;
+            }
+        }
+
+        (response != null ? hits : misses).increment();
+        return response;
+    }
+
+    /**
+     * Stores a response, evicting the least recently used entries until the cache fits.
+     * Bodies larger than the whole cache are not stored.
+     *
+     * @return the stored entry
+     */
+    public CachedResponse put(String key, int status, Map<String, String> headers, byte[] body) {
+        CachedResponse response = new CachedResponse(status, Map.copyOf(headers), body, System.nanoTime() + ttlNanos);
+        if (body.length > maxBytes) {
+            return response;
+        }
+
+        synchronized (this) {
+            CachedResponse previous = entries.put(key, response);
+            if (previous != null) {
+                cachedBytes -= previous.body().length;
+            }
+            cachedBytes += body.length;
+
+            var eldest = entries.entrySet().iterator();
+            while ((cachedBytes > maxBytes || entries.size() > maxEntries) && eldest.hasNext()) {
+                cachedBytes -= eldest.next().getValue().body().length;
+                eldest.remove();
+            }
+        }
+        return response;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        cachedBytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,74 @@
+package com.abidev.http.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Compresses to gzip or zlib ("deflate") with a pooled Deflater, which is returned to the
+ * pool on {@link #close()}. {@link #flush()} performs a sync flush, so streamed responses
+ * reach the client incrementally.
+ */
+final class CompressingOutputStream extends DeflaterOutputStream {
+
+    private static final byte[] GZIP_HEADER = {
+            0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+
+    private final DeflaterPool pool;
+    private final boolean gzip;
+    private final CRC32 crc;
+    private boolean finished;
+    private boolean released;
+
+    CompressingOutputStream(OutputStream out, ContentEncoding encoding, DeflaterPool pool) throws IOException {
+        super(out, pool.acquire(encoding == ContentEncoding.GZIP), 8192, true);
+        this.pool = pool;
+        this.gzip = encoding == ContentEncoding.GZIP;
+        this.crc = gzip ? new CRC32() : null;
+
+        if (gzip) {
+            out.write(GZIP_HEADER);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        super.write(b, off, len);
+        if (gzip) {
+            crc.update(b, off, len);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (finished) return;
+        finished = true;
+
+        super.finish();
+
+        if (gzip) {
+            writeInt((int) crc.getValue());
+            writeInt((int) def.getBytesRead());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (released) return;
+        try {
+            super.close();
+        } finally {
+            released = true;
+            pool.release(def, gzip);
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+}
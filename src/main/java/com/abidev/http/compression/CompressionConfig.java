@@ -0,0 +1,149 @@
+package com.abidev.http.compression;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * Response compression settings of the server.
+ * <p>
+ * Bodies are only compressed if the client accepts gzip or deflate, the Content-Type is in
+ * the allowlist and the body is at least {@code minSize} bytes. Routes can override the
+ * minimum size or opt out with {@link com.abidev.annotations.Compress}.
+ */
+public final class CompressionConfig {
+
+    /**
+     * Types worth compressing. Images, video and archives are already compressed.
+     */
+    public static final List<String> DEFAULT_MIME_TYPES = List.of(
+            "text/*",
+            "application/json",
+            "application/x-ndjson",
+            "application/javascript",
+            "application/xml",
+            "image/svg+xml"
+    );
+
+    private final int minSize;
+    private final int level;
+    private final int maxPooledDeflaters;
+    private final Set<String> mimeTypes;
+
+    private CompressionConfig(Builder builder) {
+        this.minSize = builder.minSize;
+        this.level = builder.level;
+        this.maxPooledDeflaters = builder.maxPooledDeflaters;
+        this.mimeTypes = Set.copyOf(builder.mimeTypes);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the default settings
+     */
+    public static CompressionConfig defaults() {
+        return builder().build();
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getMaxPooledDeflaters() {
+        return maxPooledDeflaters;
+    }
+
+    public Set<String> getMimeTypes() {
+        return mimeTypes;
+    }
+
+    /**
+     * @param contentType a Content-Type header value, parameters included
+     * @return true if the type matches the allowlist, either exactly or as {@code type/*}
+     */
+    public boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int semicolon = contentType.indexOf(';');
+        String type = (semicolon >= 0 ? contentType.substring(0, semicolon) : contentType).trim().toLowerCase();
+
+        if (mimeTypes.contains(type)) {
+            return true;
+        }
+        int slash = type.indexOf('/');
+        return slash > 0 && mimeTypes.contains(type.substring(0, slash) + "/*");
+    }
+
+    public static class Builder {
+        private int minSize = 1024;
+        private int level = Deflater.DEFAULT_COMPRESSION;
+        private int maxPooledDeflaters = Math.max(8, Runtime.getRuntime().availableProcessors() * 4);
+        private final Set<String> mimeTypes = new LinkedHashSet<>(DEFAULT_MIME_TYPES);
+
+        private Builder() {
+        }
+
+        /**
+         * Bodies smaller than this are sent uncompressed; the framing overhead would outweigh the gain.
+         */
+        public Builder minSize(int minSize) {
+            if (minSize < 0) {
+                throw new IllegalArgumentException("minSize must not be negative: " + minSize);
+            }
+            this.minSize = minSize;
+            return this;
+        }
+
+        /**
+         * Compression level from 1 (fastest) to 9 (smallest), or -1 for the zlib default.
+         */
+        public Builder level(int level) {
+            if (level != Deflater.DEFAULT_COMPRESSION && (level < 1 || level > 9)) {
+                throw new IllegalArgumentException("level must be -1 or between 1 and 9: " + level);
+            }
+            this.level = level;
+            return this;
+        }
+
+        /**
+         * Number of idle Deflaters kept for reuse.
+         */
+        public Builder maxPooledDeflaters(int maxPooledDeflaters) {
+            if (maxPooledDeflaters < 0) {
+                throw new IllegalArgumentException("maxPooledDeflaters must not be negative: " + maxPooledDeflaters);
+            }
+            this.maxPooledDeflaters = maxPooledDeflaters;
+            return this;
+        }
+
+        /**
+         * Replaces the allowlist. Entries are media types such as {@code application/json} or
+         * wildcards such as {@code text/*}.
+         */
+        public Builder mimeTypes(String... mimeTypes) {
+            this.mimeTypes.clear();
+            for (String type : mimeTypes) {
+                this.mimeTypes.add(type.trim().toLowerCase());
+            }
+            return this;
+        }
+
+        public Builder addMimeType(String mimeType) {
+            this.mimeTypes.add(mimeType.trim().toLowerCase());
+            return this;
+        }
+
+        public CompressionConfig build() {
+            return new CompressionConfig(this);
+        }
+    }
+}
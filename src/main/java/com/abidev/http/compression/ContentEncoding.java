@@ -0,0 +1,23 @@
+package com.abidev.http.compression;
+
+/**
+ * Content codings the server can produce.
+ */
+public enum ContentEncoding {
+
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * @return the value used in {@code Accept-Encoding} and {@code Content-Encoding}
+     */
+    public String token() {
+        return token;
+    }
+}
@@ -0,0 +1,46 @@
+package com.abidev.http.compression;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * Pool of {@link Deflater}s. Each Deflater owns native zlib state that is expensive to
+ * allocate and is only released by {@link Deflater#end()}, so the hot path reuses them.
+ */
+final class DeflaterPool {
+
+    private final int level;
+    private final int maxPooled;
+    private final Queue<Deflater> raw = new ConcurrentLinkedQueue<>();
+    private final Queue<Deflater> zlib = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    DeflaterPool(int level, int maxPooled) {
+        this.level = level;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * @param nowrap true for raw deflate data (used inside gzip), false for the zlib format
+     */
+    Deflater acquire(boolean nowrap) {
+        Deflater deflater = (nowrap ? raw : zlib).poll();
+        if (deflater == null) {
+            return new Deflater(level, nowrap);
+        }
+        pooled.decrementAndGet();
+        return deflater;
+    }
+
+    void release(Deflater deflater, boolean nowrap) {
+        if (pooled.incrementAndGet() > maxPooled) {
+            pooled.decrementAndGet();
+            deflater.end();
+            return;
+        }
+        deflater.reset();
+        (nowrap ? raw : zlib).offer(deflater);
+    }
+}
@@ -0,0 +1,125 @@
+package com.abidev.http.compression;
+
+import com.abidev.annotations.Compress;
+import com.abidev.http.transport.ServerExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Negotiates {@code Accept-Encoding} and compresses response bodies with pooled Deflaters.
+ */
+public class ResponseCompressor {
+
+    private final CompressionConfig config;
+    private final DeflaterPool pool;
+
+    public ResponseCompressor(CompressionConfig config) {
+        this.config = config;
+        this.pool = new DeflaterPool(config.getLevel(), config.getMaxPooledDeflaters());
+    }
+
+    public CompressionConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Decides whether the response can be compressed. Must be called once the Content-Type
+     * is known and before the headers are sent. Adds {@code Vary: Accept-Encoding} to every
+     * response whose representation depends on the header.
+     *
+     * @param status the response status
+     * @param length the body size, or -1 if it is streamed
+     * @param route  the route's {@link Compress} settings, or null
+     * @return the encoding to apply, or null to send the body as is
+     */
+    public ContentEncoding select(ServerExchange exchange, int status, long length, Compress route) {
+
+        if (route != null && !route.value()) return null;
+        if (status < 200 || status == 204 || status == 206 || status == 304) return null;
+        if ("HEAD".equals(exchange.getRequestMethod())) return null;
+
+        var headers = exchange.getResponseHeaders();
+        if (headers.containsKey("Content-Encoding") || headers.containsKey("Content-Range")) return null;
+
+        List<String> contentType = headers.get("Content-Type");
+        if (contentType == null || contentType.isEmpty() || !config.isCompressible(contentType.get(0))) return null;
+
+        int minSize = route != null && route.minSize() >= 0 ? route.minSize() : config.getMinSize();
+        if (length >= 0 && length < minSize) return null;
+
+        exchange.addResponseHeader("Vary", "Accept-Encoding");
+
+        return negotiate(exchange.getRequestHeader("Accept-Encoding"));
+    }
+
+    /**
+     * Compresses a complete body.
+     *
+     * @return the compressed bytes, or null if compressing did not make the body smaller
+     */
+    public byte[] compress(byte[] body, ContentEncoding encoding) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (OutputStream compressing = new CompressingOutputStream(out, encoding, pool)) {
+            compressing.write(body);
+        }
+        return out.size() < body.length ? out.toByteArray() : null;
+    }
+
+    /**
+     * Wraps a streamed response body. Closing the returned stream finishes the compressed
+     * data and closes {@code out}.
+     */
+    public OutputStream wrap(OutputStream out, ContentEncoding encoding) throws IOException {
+        return new CompressingOutputStream(out, encoding, pool);
+    }
+
+    /**
+     * Picks the acceptable coding with the highest q-value, preferring gzip on ties.
+     */
+    static ContentEncoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+
+        double gzip = -1;
+        double deflate = -1;
+        double wildcard = -1;
+
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.split(";");
+            String coding = tokens[0].trim().toLowerCase();
+            double q = 1;
+
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=") || param.startsWith("Q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+
+            switch (coding) {
+                case "gzip", "x-gzip" -> gzip = q;
+                case "deflate" -> deflate = q;
+                case "*" -> wildcard = q;
+                default -> {
+                }
+            }
+        }
+
+        // Codings that are not listed inherit the q-value of "*"
+        if (gzip < 0) gzip = wildcard;
+        if (deflate < 0) deflate = wildcard;
+
+        if (gzip <= 0 && deflate <= 0) {
+            return null;
+        }
+        return gzip >= deflate ? ContentEncoding.GZIP : ContentEncoding.DEFLATE;
+    }
+}
@@ -0,0 +1,182 @@
+package com.abidev.http.limit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control in front of the framework. A request is admitted only if fewer than
+ * {@link #getLimit()} requests are in flight and it did not wait longer than
+ * {@code maxQueueTime} for a worker; otherwise the server answers 503 right away instead of
+ * letting latency grow without bound.
+ * <p>
+ * The limit adapts to the observed handler latency, see {@link GradientLimit}.
+ */
+public class AdmissionController {
+
+    private final GradientLimit limit;
+    private final long queueTimeout;
+    private final int retryAfterSeconds;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int currentLimit;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final AtomicLong avgQueueNanos = new AtomicLong();
+    private final AtomicLong maxSeenQueueNanos = new AtomicLong();
+
+    private AdmissionController(Builder builder) {
+        this.limit = new GradientLimit(builder.initialLimit, builder.minLimit, builder.maxLimit, builder.smoothing);
+        this.currentLimit = builder.initialLimit;
+        this.queueTimeout = builder.maxQueueTime.toNanos();
+        this.retryAfterSeconds = builder.retryAfterSeconds;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Tries to admit a request.
+     *
+     * @param queueNanos how long the request waited for a worker, or 0 if unknown
+     * @return a permit to release once the handler is done, or null if the request must be rejected
+     */
+    public Permit tryAcquire(long queueNanos) {
+        if (queueNanos > queueTimeout) {
+            // The client has likely given up already; don't spend a worker on it
+            shed.increment();
+            return null;
+        }
+
+        while (true) {
+            int current = inFlight.get();
+            if (current >= currentLimit) {
+                rejected.increment();
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.increment();
+                recordQueueTime(queueNanos);
+                return new Permit(current + 1);
+            }
+        }
+    }
+
+    /**
+     * @return the value of the {@code Retry-After} header sent with rejections
+     */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public int getLimit() {
+        return currentLimit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public AdmissionStats stats() {
+        return new AdmissionStats(
+                currentLimit,
+                inFlight.get(),
+                accepted.sum(),
+                rejected.sum(),
+                shed.sum(),
+                avgQueueNanos.get() / 1_000_000.0,
+                maxSeenQueueNanos.get() / 1_000_000.0
+        );
+    }
+
+    private void recordQueueTime(long queueNanos) {
+        // EWMA with weight 1/16; racing updates may lose a sample, which is fine for a gauge
+        long avg = avgQueueNanos.get();
+        avgQueueNanos.set(avg + (queueNanos - avg) / 16);
+        maxSeenQueueNanos.accumulateAndGet(queueNanos, Math::max);
+    }
+
+    /**
+     * An admitted request. {@link #release()} must be called exactly once.
+     */
+    public final class Permit {
+
+        private final long start = System.nanoTime();
+        private final int inFlightAtStart;
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        public void release() {
+            inFlight.decrementAndGet();
+            currentLimit = limit.onSample(System.nanoTime() - start, inFlightAtStart);
+        }
+    }
+
+    public static class Builder {
+        private int initialLimit = 20;
+        private int minLimit = 4;
+        private int maxLimit = 1000;
+        private double smoothing = 0.2;
+        private Duration maxQueueTime = Duration.ofSeconds(1);
+        private int retryAfterSeconds = 1;
+
+        private Builder() {
+        }
+
+        public Builder initialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        public Builder minLimit(int minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        public Builder maxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * How fast the limit follows its target, between 0 (never) and 1 (immediately).
+         */
+        public Builder smoothing(double smoothing) {
+            if (smoothing <= 0 || smoothing > 1) {
+                throw new IllegalArgumentException("smoothing must be in (0, 1]: " + smoothing);
+            }
+            this.smoothing = smoothing;
+            return this;
+        }
+
+        /**
+         * Requests that waited longer than this for a worker are rejected without being handled.
+         */
+        public Builder maxQueueTime(Duration maxQueueTime) {
+            this.maxQueueTime = maxQueueTime;
+            return this;
+        }
+
+        public Builder retryAfterSeconds(int retryAfterSeconds) {
+            if (retryAfterSeconds < 0) {
+                throw new IllegalArgumentException("retryAfterSeconds must not be negative: " + retryAfterSeconds);
+            }
+            this.retryAfterSeconds = retryAfterSeconds;
+            return this;
+        }
+
+        public AdmissionController build() {
+            if (minLimit <= 0 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException("Limits must satisfy 0 < min <= initial <= max: "
+                        + minLimit + ", " + initialLimit + ", " + maxLimit);
+            }
+            return new AdmissionController(this);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.abidev.http.limit;
+
+/**
+ * Point-in-time counters of an {@link AdmissionController}.
+ *
+ * @param limit             the current concurrency limit
+ * @param inFlight          requests currently being handled
+ * @param accepted          requests admitted since start
+ * @param rejected          requests rejected because the limit was reached
+ * @param shed              requests rejected because they waited too long for a worker
+ * @param avgQueueMillis    moving average of the time admitted requests waited for a worker
+ * @param maxQueueMillis    longest wait seen since start
+ */
+public record AdmissionStats(int limit,
+                             int inFlight,
+                             long accepted,
+                             long rejected,
+                             long shed,
+                             double avgQueueMillis,
+                             double maxQueueMillis) {
+}
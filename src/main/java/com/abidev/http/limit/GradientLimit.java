@@ -0,0 +1,86 @@
+package com.abidev.http.limit;
+
+/**
+ * Gradient-based concurrency limit, in the spirit of TCP Vegas: the limit grows while the
+ * latency of recent requests stays close to the no-load baseline, and shrinks in proportion
+ * as requests start queueing and latency rises.
+ * <p>
+ * Samples are aggregated over short windows; the limit is recomputed once per window:
+ * <pre>
+ *   gradient = clamp(0.5, 1.0, tolerance * baseRtt / shortRtt)
+ *   newLimit = limit * gradient + sqrt(limit)
+ *   limit    = limit * (1 - smoothing) + newLimit * smoothing
+ * </pre>
+ * The {@code sqrt(limit)} term is the headroom that lets the limit probe upwards.
+ * {@code baseRtt} is the lowest window average seen, raised slightly every window so a
+ * permanent shift in latency is eventually accepted; a long-term average would follow an
+ * overload upwards and stop limiting.
+ */
+final class GradientLimit {
+
+    private static final long WINDOW_NANOS = 100_000_000L;
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    private static final double TOLERANCE = 1.5;
+    private static final double BASE_RTT_DRIFT = 1.01;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+
+    private double limit;
+    private double baseRtt;
+
+    private long windowStart = System.nanoTime();
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    GradientLimit(int initialLimit, int minLimit, int maxLimit, double smoothing) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+    }
+
+    /**
+     * @param rttNanos time spent handling the request
+     * @param inFlight requests in flight when it started
+     * @return the current limit
+     */
+    synchronized int onSample(long rttNanos, int inFlight) {
+        windowRttSum += rttNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+
+        long now = System.nanoTime();
+        if (windowSamples < MIN_WINDOW_SAMPLES || now - windowStart < WINDOW_NANOS) {
+            return (int) limit;
+        }
+
+        double shortRtt = (double) windowRttSum / windowSamples;
+        boolean appLimited = windowMaxInFlight < limit / 2;
+
+        windowStart = now;
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+
+        baseRtt = baseRtt == 0 ? shortRtt : Math.min(baseRtt * BASE_RTT_DRIFT, shortRtt);
+
+        if (appLimited) {
+            // Load is well below the limit; the samples say nothing about how far it can go
+            return (int) limit;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * baseRtt / shortRtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        return (int) limit;
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+}
@@ -0,0 +1,102 @@
+package com.abidev.http.sse;
+
+import com.abidev.annotations.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans events out to every subscribed {@link SseEmitter}. Each event is serialized once and
+ * the same bytes are queued for all subscribers; slow subscribers are dropped by their
+ * emitter's buffer limit and unsubscribed automatically.
+ * <p>
+ * The container creates one shared broadcaster: inject it into the components that publish
+ * or subscribe. Create more with {@code new} for separate audiences.
+ */
+@Component
+public class SseBroadcaster {
+
+    private final Set<SseEmitter> subscribers = ConcurrentHashMap.newKeySet();
+    private final int maxBufferedBytes;
+
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public SseBroadcaster() {
+        this(SseEmitter.DEFAULT_MAX_BUFFERED_BYTES);
+    }
+
+    /**
+     * @param maxBufferedBytes the buffer limit of the emitters created by {@link #subscribe()}
+     */
+    public SseBroadcaster(int maxBufferedBytes) {
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    /**
+     * Creates an emitter that receives every following event. Return it from the route.
+     */
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(maxBufferedBytes));
+    }
+
+    public SseEmitter subscribe(SseEmitter emitter) {
+        subscribers.add(emitter);
+        emitter.onCompletion(() -> {
+            if (subscribers.remove(emitter) && emitter.isOverflowed()) {
+                dropped.incrementAndGet();
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * Sends an event to all subscribers.
+     *
+     * @return the number of subscribers the event was queued for
+     */
+    public int send(Object data) {
+        return send(data instanceof SseEvent event ? event : SseEvent.of(data));
+    }
+
+    public int send(SseEvent event) {
+        byte[] bytes = event.bytes();
+        events.incrementAndGet();
+
+        int delivered = 0;
+        for (SseEmitter emitter : subscribers) {
+            if (emitter.offer(bytes)) {
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Completes every subscriber's stream.
+     */
+    public void completeAll() {
+        for (SseEmitter emitter : subscribers) {
+            emitter.complete();
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * @return the number of events sent so far
+     */
+    public long getEventCount() {
+        return events.get();
+    }
+
+    /**
+     * @return the number of subscribers disconnected for falling behind
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
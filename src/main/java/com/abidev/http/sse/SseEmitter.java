@@ -0,0 +1,278 @@
+package com.abidev.http.sse;
+
+import com.abidev.http.transport.ServerExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A Server-Sent Events stream. Return it from a route to keep the response open, then push
+ * events with {@link #send(Object)} from any thread.
+ * <p>
+ * Sending never blocks: events are queued and written by the server's SSE threads. The queue
+ * is bounded by {@code maxBufferedBytes}; a client that falls that far behind is disconnected
+ * (browsers reconnect on their own and can resume with {@code Last-Event-ID}).
+ */
+public class SseEmitter {
+
+    public static final int DEFAULT_MAX_BUFFERED_BYTES = 256 * 1024;
+
+    private final int maxBufferedBytes;
+
+    private final ArrayDeque<byte[]> queue = new ArrayDeque<>();
+    private final List<Runnable> completionCallbacks = new ArrayList<>(1);
+    private int bufferedBytes;
+    private boolean draining;
+    private boolean completing;
+    private boolean closed;
+    private boolean overflowed;
+
+    private ServerExchange exchange;
+    private OutputStream out;
+    private Executor executor;
+
+    public SseEmitter() {
+        this(DEFAULT_MAX_BUFFERED_BYTES);
+    }
+
+    /**
+     * @param maxBufferedBytes the number of bytes that may wait for a slow client before it is dropped
+     */
+    public SseEmitter(int maxBufferedBytes) {
+        if (maxBufferedBytes <= 0) {
+            throw new IllegalArgumentException("maxBufferedBytes must be positive: " + maxBufferedBytes);
+        }
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    /**
+     * Sends an event whose data is the given object (JSON) or string.
+     *
+     * @return false if the emitter is closed or the client was dropped for being too slow
+     */
+    public boolean send(Object data) {
+        return send(data instanceof SseEvent event ? event : SseEvent.of(data));
+    }
+
+    public boolean send(SseEvent event) {
+        return offer(event.bytes());
+    }
+
+    /**
+     * Ends the stream once the queued events have been written.
+     */
+    public void complete() {
+        synchronized (this) {
+            if (closed || completing) return;
+            completing = true;
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * Registers a callback that runs once the stream is closed, whether completed, dropped or
+     * disconnected by the client.
+     */
+    public void onCompletion(Runnable callback) {
+        boolean runNow;
+        synchronized (this) {
+            runNow = closed;
+            if (!runNow) {
+                completionCallbacks.add(callback);
+            }
+        }
+        if (runNow) {
+            callback.run();
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return !closed && !completing;
+    }
+
+    /**
+     * @return true if the client was disconnected because its buffer overflowed
+     */
+    public synchronized boolean isOverflowed() {
+        return overflowed;
+    }
+
+    /**
+     * Queues pre-encoded event bytes.
+     */
+    boolean offer(byte[] bytes) {
+        boolean overflow = false;
+        synchronized (this) {
+            if (closed || completing) {
+                return false;
+            }
+            if (bufferedBytes + bytes.length > maxBufferedBytes) {
+                overflowed = true;
+                overflow = true;
+                queue.clear();
+                bufferedBytes = 0;
+                completing = true;
+            } else {
+                queue.add(bytes);
+                bufferedBytes += bytes.length;
+            }
+        }
+
+        if (overflow) {
+            closeFromOutside();
+            return false;
+        }
+
+        scheduleDrain();
+        return true;
+    }
+
+    /**
+     * Binds the emitter to the response; called by the server once the headers are sent.
+     * Events sent before this are written right away.
+     *
+     * @param exchange the exchange, whose headers have been sent
+     * @param executor runs the writes
+     */
+    public void attach(ServerExchange exchange, Executor executor) {
+        boolean alreadyClosed;
+        synchronized (this) {
+            this.exchange = exchange;
+            this.out = exchange.getResponseBody();
+            this.executor = executor;
+            alreadyClosed = closed;
+        }
+        if (alreadyClosed) {
+            exchange.close();
+            return;
+        }
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        Executor target;
+        synchronized (this) {
+            if (draining || executor == null || closed) return;
+            if (queue.isEmpty() && !completing) return;
+            draining = true;
+            target = executor;
+        }
+
+        try {
+            target.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // Server is shutting down
+            synchronized (this) {
+                draining = false;
+            }
+            markClosed();
+            exchange.abort();
+        }
+    }
+
+    /**
+     * Writes queued events until the queue is empty. Only one drain runs at a time per emitter,
+     * so the response stream is never written concurrently, and only the draining thread
+     * closes the exchange while a drain is in progress.
+     */
+    private void drain() {
+        boolean failed = false;
+        try {
+            boolean flushed = false;
+            while (true) {
+                byte[] bytes;
+                synchronized (this) {
+                    if (closed) break;
+
+                    bytes = queue.poll();
+                    if (bytes != null) {
+                        bufferedBytes -= bytes.length;
+                    } else if (completing) {
+                        break;
+                    } else if (flushed) {
+                        draining = false;
+                        return;
+                    }
+                }
+
+                if (bytes == null) {
+                    // Queue is empty: push what was written to the client, then check again
+                    out.flush();
+                    flushed = true;
+                } else {
+                    out.write(bytes);
+                    flushed = false;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Client disconnected
+            failed = true;
+        }
+
+        markClosed();
+        if (failed) {
+            exchange.abort();
+        }
+        exchange.close();
+    }
+
+    /**
+     * Closes the stream from a thread other than the draining one. Never blocks: a drain that
+     * is stuck writing to a client that stopped reading is cut off with
+     * {@link ServerExchange#abort()} and closes the exchange itself once it wakes up.
+     */
+    private void closeFromOutside() {
+        ServerExchange target;
+        Executor closer;
+        boolean wasDraining;
+        synchronized (this) {
+            wasDraining = draining;
+            target = exchange;
+            closer = executor;
+        }
+
+        if (!markClosed() || target == null) {
+            return;
+        }
+
+        if (wasDraining) {
+            target.abort();
+            return;
+        }
+
+        try {
+            closer.execute(target::close);
+        } catch (RejectedExecutionException e) {
+            target.abort();
+        }
+    }
+
+    /**
+     * @return false if the emitter was already closed
+     */
+    private boolean markClosed() {
+        List<Runnable> callbacks;
+        synchronized (this) {
+            if (closed) return false;
+            closed = true;
+            queue.clear();
+            bufferedBytes = 0;
+            callbacks = new ArrayList<>(completionCallbacks);
+            completionCallbacks.clear();
+        }
+
+        for (Runnable callback : callbacks) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        return true;
+    }
+}
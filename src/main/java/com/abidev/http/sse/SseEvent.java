@@ -0,0 +1,160 @@
+package com.abidev.http.sse;
+
+import tools.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A Server-Sent Event. The wire format is produced once, on first use, and shared by
+ * every emitter the event is sent to.
+ * <p>
+ * String data is sent as is (one {@code data:} line per line of text); any other object
+ * is serialized to JSON.
+ */
+public final class SseEvent {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final String id;
+    private final String name;
+    private final Object data;
+    private final long retryMillis;
+    private final String comment;
+
+    private volatile byte[] encoded;
+
+    private SseEvent(Builder builder) {
+        this.id = builder.id;
+        this.name = builder.name;
+        this.data = builder.data;
+        this.retryMillis = builder.retryMillis;
+        this.comment = builder.comment;
+    }
+
+    public static SseEvent of(Object data) {
+        return builder().data(data).build();
+    }
+
+    /**
+     * @return a comment line, ignored by clients; useful as a heartbeat through proxies
+     */
+    public static SseEvent comment(String comment) {
+        return builder().comment(comment).build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Object getData() {
+        return data;
+    }
+
+    /**
+     * @return the event in {@code text/event-stream} format, including the terminating blank line
+     */
+    public byte[] bytes() {
+        byte[] bytes = encoded;
+        if (bytes == null) {
+            // Racing threads produce identical bytes, so no locking is needed
+            bytes = encode().getBytes(StandardCharsets.UTF_8);
+            encoded = bytes;
+        }
+        return bytes;
+    }
+
+    private String encode() {
+        StringBuilder sb = new StringBuilder(64);
+
+        if (comment != null) {
+            appendLines(sb, ":", comment);
+        }
+        if (id != null) {
+            appendLines(sb, "id:", id);
+        }
+        if (name != null) {
+            appendLines(sb, "event:", name);
+        }
+        if (retryMillis >= 0) {
+            sb.append("retry:").append(retryMillis).append('\n');
+        }
+        if (data != null) {
+            String text = data instanceof String s ? s : mapper.writeValueAsString(data);
+            appendLines(sb, "data:", text);
+        }
+
+        return sb.append('\n').toString();
+    }
+
+    private static void appendLines(StringBuilder sb, String field, String value) {
+        int start = 0;
+        int length = value.length();
+
+        for (int i = 0; i <= length; i++) {
+            if (i == length || value.charAt(i) == '\n' || value.charAt(i) == '\r') {
+                sb.append(field).append(value, start, i).append('\n');
+                if (i < length - 1 && value.charAt(i) == '\r' && value.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+    public static class Builder {
+        private String id;
+        private String name;
+        private Object data;
+        private long retryMillis = -1;
+        private String comment;
+
+        private Builder() {
+        }
+
+        /**
+         * Sent back by reconnecting clients in the {@code Last-Event-ID} header.
+         */
+        public Builder id(String id) {
+            this.id = id;
+            return this;
+        }
+
+        /**
+         * The event type, dispatched to {@code addEventListener(name)} on the client.
+         */
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder data(Object data) {
+            this.data = data;
+            return this;
+        }
+
+        /**
+         * Reconnection delay the client should use.
+         */
+        public Builder retry(long retryMillis) {
+            this.retryMillis = retryMillis;
+            return this;
+        }
+
+        public Builder comment(String comment) {
+            this.comment = comment;
+            return this;
+        }
+
+        public SseEvent build() {
+            return new SseEvent(this);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.abidev.http.transport;
+
+import java.io.IOException;
+
+/**
+ * Callback invoked by an {@link HttpTransport} for every request it receives.
+ */
+@FunctionalInterface
+public interface ExchangeHandler {
+
+    void handle(ServerExchange exchange) throws IOException;
+}
@@ -0,0 +1,51 @@
+package com.abidev.http.transport;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A file region queued on a connection. The event loop sends it with
+ * {@link FileChannel#transferTo}, which lets the kernel copy the file to the socket
+ * without passing it through user space.
+ */
+final class FileTransfer {
+
+    private final FileChannel file;
+    private long position;
+    private long remaining;
+
+    FileTransfer(FileChannel file, long position, long count) {
+        this.file = file;
+        this.position = position;
+        this.remaining = count;
+    }
+
+    /**
+     * @return the number of bytes transferred by this call; 0 if the socket is full
+     * @throws EOFException if the file became shorter than the region; the socket may still be
+     *                      writable, so waiting for it would never end
+     */
+    long transferTo(WritableByteChannel target) throws IOException {
+        long n = file.transferTo(position, remaining, target);
+        if (n == 0 && position >= file.size()) {
+            throw new EOFException("File ended with " + remaining + " bytes of the region left to send");
+        }
+        position += n;
+        remaining -= n;
+        return n;
+    }
+
+    boolean isDone() {
+        return remaining == 0;
+    }
+
+    void close() {
+        try {
+            file.close();
+        } catch (IOException ignored) {
+            // Read-only channel, nothing to flush
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.abidev.http.transport;
+
+/**
+ * Thrown by {@link HttpRequestParser} when a request is malformed or exceeds a limit.
+ * The connection answers with {@link #getStatus()} and is closed.
+ */
+final class HttpParseException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    HttpParseException(int status, String message) {
+        super(message, null, false, false);
+        this.status = status;
+    }
+
+    int getStatus() {
+        return status;
+    }
+}
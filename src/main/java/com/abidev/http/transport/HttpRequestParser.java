@@ -0,0 +1,278 @@
+package com.abidev.http.transport;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Incremental HTTP/1.1 request parser.
+ * <p>
+ * {@link #parse(ByteBuffer)} returns a request as soon as its head is complete; the body is
+ * then read separately, so it can be handed to the handler as it arrives. Bytes of a following
+ * (pipelined) request are left in the buffer, so the caller can parse the next request without
+ * reading from the socket again.
+ */
+final class HttpRequestParser {
+
+    private static final int MAX_LINE_LENGTH = 4096;
+
+    private enum State { HEAD, FIXED_BODY, CHUNK_SIZE, CHUNK_DATA, CHUNK_DATA_END, TRAILERS }
+
+    private final int maxHeaderSize;
+    private final long maxBodySize;
+
+    private State state = State.HEAD;
+
+    private String method;
+    private String target;
+    private String version;
+    private Map<String, List<String>> headers;
+
+    private long bodyRemaining;
+    private long bodyReceived;
+    private long chunkRemaining;
+    private boolean expectContinue;
+
+    HttpRequestParser(int maxHeaderSize, long maxBodySize) {
+        this.maxHeaderSize = maxHeaderSize;
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * Parses a request head from the buffer, which must be in read mode.
+     *
+     * @param buffer the received bytes
+     * @return the request, or null if more bytes are needed; if it has a body, pass the
+     *         following bytes to {@link #readBody(ByteBuffer, NioRequestBody)} until it is complete
+     * @throws HttpParseException if the request is malformed or too large
+     */
+    ParsedRequest parse(ByteBuffer buffer) throws HttpParseException {
+        if (!parseHead(buffer)) {
+            return null;
+        }
+        ParsedRequest request = new ParsedRequest(method, target, version, headers, state != State.HEAD);
+        method = null;
+        target = null;
+        version = null;
+        headers = null;
+        return request;
+    }
+
+    /**
+     * Moves body bytes from the buffer, which must be in read mode, to the request body,
+     * decoding chunked transfer coding. Bytes of a following request are left in the buffer.
+     *
+     * @return true once the body is complete
+     * @throws HttpParseException if the body is malformed or too large
+     */
+    boolean readBody(ByteBuffer buffer, NioRequestBody body) throws HttpParseException {
+        while (true) {
+            switch (state) {
+                case HEAD -> {
+                    return true;
+                }
+                case FIXED_BODY -> {
+                    int n = (int) Math.min(buffer.remaining(), bodyRemaining);
+                    body.append(buffer, n);
+                    bodyRemaining -= n;
+                    if (bodyRemaining > 0) return false;
+                    state = State.HEAD;
+                }
+                case CHUNK_SIZE -> {
+                    String line = readLine(buffer);
+                    if (line == null) return false;
+                    long size = parseChunkSize(line);
+                    if (size == 0) {
+                        state = State.TRAILERS;
+                    } else {
+                        if (size > maxBodySize - bodyReceived) {
+                            throw new HttpParseException(413, "Request body too large");
+                        }
+                        chunkRemaining = size;
+                        state = State.CHUNK_DATA;
+                    }
+                }
+                case CHUNK_DATA -> {
+                    int n = (int) Math.min(buffer.remaining(), chunkRemaining);
+                    if (n == 0) return false;
+                    body.append(buffer, n);
+                    bodyReceived += n;
+                    chunkRemaining -= n;
+                    if (chunkRemaining > 0) return false;
+                    state = State.CHUNK_DATA_END;
+                }
+                case CHUNK_DATA_END -> {
+                    String line = readLine(buffer);
+                    if (line == null) return false;
+                    if (!line.isEmpty()) {
+                        throw new HttpParseException(400, "Malformed chunk");
+                    }
+                    state = State.CHUNK_SIZE;
+                }
+                case TRAILERS -> {
+                    String line = readLine(buffer);
+                    if (line == null) return false;
+                    if (line.isEmpty()) {
+                        state = State.HEAD;
+                    }
+                    // Trailer fields are ignored
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the client sent {@code Expect: 100-continue} for the request being
+     * received; the flag is cleared by this call
+     */
+    boolean takeExpectContinue() {
+        boolean value = expectContinue;
+        expectContinue = false;
+        return value;
+    }
+
+    private boolean parseHead(ByteBuffer buffer) throws HttpParseException {
+
+        // RFC 9112 2.2: ignore empty lines received before the request line
+        while (buffer.remaining() >= 2
+                && buffer.get(buffer.position()) == '\r'
+                && buffer.get(buffer.position() + 1) == '\n') {
+            buffer.position(buffer.position() + 2);
+        }
+
+        int start = buffer.position();
+        int end = indexOf(buffer, start, buffer.limit(), true);
+
+        if (end < 0) {
+            if (buffer.remaining() >= maxHeaderSize || buffer.limit() == buffer.capacity() && start == 0) {
+                throw new HttpParseException(431, "Request header fields too large");
+            }
+            return false;
+        }
+
+        if (end - start > maxHeaderSize) {
+            throw new HttpParseException(431, "Request header fields too large");
+        }
+
+        byte[] raw = new byte[end - start];
+        buffer.get(raw);
+        buffer.position(end + 4);
+
+        String head = new String(raw, StandardCharsets.ISO_8859_1);
+        String[] lines = head.split("\r\n");
+
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3 || requestLine[0].isEmpty() || requestLine[1].isEmpty()) {
+            throw new HttpParseException(400, "Malformed request line");
+        }
+        if (!requestLine[2].equals("HTTP/1.1") && !requestLine[2].equals("HTTP/1.0")) {
+            throw new HttpParseException(505, "HTTP version not supported");
+        }
+
+        method = requestLine[0];
+        target = requestLine[1];
+        version = requestLine[2];
+        headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i];
+            int colon = line.indexOf(':');
+            if (colon <= 0 || Character.isWhitespace(line.charAt(colon - 1))) {
+                throw new HttpParseException(400, "Malformed header field");
+            }
+            String name = line.substring(0, colon);
+            String value = line.substring(colon + 1).trim();
+            headers.computeIfAbsent(name, k -> new ArrayList<>(1)).add(value);
+        }
+
+        List<String> transferEncoding = headers.get("Transfer-Encoding");
+        List<String> contentLength = headers.get("Content-Length");
+
+        if (transferEncoding != null) {
+            if (contentLength != null) {
+                // Both framings at once is a request smuggling vector
+                throw new HttpParseException(400, "Both Transfer-Encoding and Content-Length present");
+            }
+            if (!transferEncoding.get(transferEncoding.size() - 1).toLowerCase().endsWith("chunked")) {
+                throw new HttpParseException(501, "Unsupported transfer encoding");
+            }
+            bodyReceived = 0;
+            expectContinue = isExpectContinue();
+            state = State.CHUNK_SIZE;
+            return true;
+        }
+
+        if (contentLength != null) {
+            long length;
+            try {
+                length = Long.parseLong(contentLength.get(0));
+            } catch (NumberFormatException e) {
+                throw new HttpParseException(400, "Invalid Content-Length");
+            }
+            if (length < 0 || contentLength.stream().anyMatch(v -> !v.equals(contentLength.get(0)))) {
+                throw new HttpParseException(400, "Invalid Content-Length");
+            }
+            if (length > maxBodySize) {
+                throw new HttpParseException(413, "Request body too large");
+            }
+            if (length > 0) {
+                bodyRemaining = length;
+                expectContinue = isExpectContinue();
+                state = State.FIXED_BODY;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isExpectContinue() {
+        List<String> expect = headers.get("Expect");
+        return expect != null && expect.get(0).equalsIgnoreCase("100-continue");
+    }
+
+    private String readLine(ByteBuffer buffer) throws HttpParseException {
+        int start = buffer.position();
+        int end = indexOf(buffer, start, buffer.limit(), false);
+        if (end < 0) {
+            if (buffer.remaining() > MAX_LINE_LENGTH) {
+                throw new HttpParseException(400, "Line too long");
+            }
+            return null;
+        }
+        byte[] raw = new byte[end - start];
+        buffer.get(raw);
+        buffer.position(end + 2);
+        return new String(raw, StandardCharsets.ISO_8859_1);
+    }
+
+    private static long parseChunkSize(String line) throws HttpParseException {
+        int extension = line.indexOf(';');
+        String hex = (extension >= 0 ? line.substring(0, extension) : line).trim();
+        try {
+            long size = Long.parseLong(hex, 16);
+            if (size < 0) throw new NumberFormatException();
+            return size;
+        } catch (NumberFormatException e) {
+            throw new HttpParseException(400, "Invalid chunk size");
+        }
+    }
+
+    /**
+     * Finds CRLF (or CRLFCRLF when {@code blankLine} is set) between two absolute positions.
+     *
+     * @return the absolute position of the first CR, or -1
+     */
+    private static int indexOf(ByteBuffer buffer, int from, int to, boolean blankLine) {
+        int needed = blankLine ? 4 : 2;
+        for (int i = from; i <= to - needed; i++) {
+            if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n'
+                    && (!blankLine || buffer.get(i + 2) == '\r' && buffer.get(i + 3) == '\n')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,36 @@
+package com.abidev.http.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+/**
+ * Transport SPI: the network engine that accepts connections, parses HTTP requests
+ * and hands them to an {@link ExchangeHandler}.
+ */
+public interface HttpTransport {
+
+    /**
+     * Binds the transport and starts serving requests.
+     *
+     * @param address  the address to listen on
+     * @param backlog  the accept backlog; 0 uses the system default
+     * @param executor the executor handlers run on, or null to run them on the transport's own I/O threads
+     * @param handler  the handler called for every request
+     * @throws IOException if the address cannot be bound
+     */
+    void start(InetSocketAddress address, int backlog, Executor executor, ExchangeHandler handler)
+            throws IOException;
+
+    /**
+     * Stops accepting connections and releases the transport's resources.
+     *
+     * @param delaySeconds the maximum time to wait for active exchanges to finish
+     */
+    void stop(int delaySeconds);
+
+    /**
+     * @return a short name used in logs
+     */
+    String name();
+}
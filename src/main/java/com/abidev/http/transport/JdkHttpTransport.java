@@ -0,0 +1,42 @@
+package com.abidev.http.transport;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+/**
+ * Default transport, backed by the JDK's built-in {@code com.sun.net.httpserver} server.
+ */
+public class JdkHttpTransport implements HttpTransport {
+
+    private HttpServer server;
+
+    @Override
+    public void start(InetSocketAddress address, int backlog, Executor executor, ExchangeHandler handler)
+            throws IOException {
+
+        server = HttpServer.create(address, backlog);
+
+        if (executor != null) {
+            server.setExecutor(executor);
+        }
+
+        server.createContext("/", exchange -> handler.handle(new JdkServerExchange(exchange)));
+        server.start();
+    }
+
+    @Override
+    public void stop(int delaySeconds) {
+        if (server != null) {
+            server.stop(delaySeconds);
+            server = null;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "jdk";
+    }
+}
@@ -0,0 +1,73 @@
+package com.abidev.http.transport;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adapts a JDK {@link HttpExchange} to {@link ServerExchange}.
+ */
+final class JdkServerExchange implements ServerExchange {
+
+    private final HttpExchange exchange;
+
+    JdkServerExchange(HttpExchange exchange) {
+        this.exchange = exchange;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return exchange.getRequestMethod();
+    }
+
+    @Override
+    public String getRequestPath() {
+        return exchange.getRequestURI().getPath();
+    }
+
+    @Override
+    public String getRawQuery() {
+        return exchange.getRequestURI().getRawQuery();
+    }
+
+    @Override
+    public Map<String, List<String>> getRequestHeaders() {
+        // Headers already performs case-insensitive lookups
+        return exchange.getRequestHeaders();
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return exchange.getRequestBody();
+    }
+
+    @Override
+    public Map<String, List<String>> getResponseHeaders() {
+        return exchange.getResponseHeaders();
+    }
+
+    @Override
+    public void sendResponseHeaders(int status, long responseLength) throws IOException {
+        exchange.sendResponseHeaders(status, responseLength);
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return exchange.getResponseBody();
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return exchange.getRemoteAddress();
+    }
+
+    @Override
+    public void close() {
+        exchange.close();
+    }
+}
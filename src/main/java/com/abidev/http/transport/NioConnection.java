@@ -0,0 +1,539 @@
+package com.abidev.http.transport;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A persistent HTTP/1.1 connection.
+ * <p>
+ * Requests are parsed on the event loop. Only one request per connection is handled at a time;
+ * pipelined requests stay in the read buffer until the previous response is complete, so
+ * responses are always written in request order.
+ * <p>
+ * A request body is streamed to the handler through a {@link NioRequestBody}: the connection
+ * stops reading while the handler is behind, so a large upload holds a few pooled buffers
+ * rather than the whole body. Without an executor the handler would block the event loop
+ * waiting for its own body, so the body is received before the handler runs.
+ * <p>
+ * Response buffers may be produced by any thread. They are queued and written by the event loop.
+ * Producers block once more than {@link #HIGH_WATERMARK} bytes are waiting, so a slow client
+ * cannot make the server buffer a whole response.
+ */
+final class NioConnection {
+
+    private static final long HIGH_WATERMARK = 256 * 1024;
+    private static final long LOW_WATERMARK = 64 * 1024;
+    private static final int MAX_GATHER = 16;
+
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final NioEventLoop loop;
+    private final NioHttpTransport transport;
+    private final SocketChannel channel;
+    private final HttpRequestParser parser;
+    private SelectionKey key;
+
+    // Event loop state
+    private ByteBuffer readBuffer;
+    private final ArrayDeque<Object> writeQueue = new ArrayDeque<>();
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+    private boolean busy;
+    private boolean inputClosed;
+    private NioRequestBody requestBody;
+    private Runnable afterBody;
+    private boolean closeAfterWrite;
+    private int requestCount;
+    private long lastActivity = System.currentTimeMillis();
+
+    // Shared with producer threads
+    private final Queue<Object> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Object writableLock = new Object();
+    private volatile boolean closed;
+
+    NioConnection(NioEventLoop loop, NioHttpTransport transport, SocketChannel channel) {
+        this.loop = loop;
+        this.transport = transport;
+        this.channel = channel;
+        this.parser = new HttpRequestParser(transport.maxHeaderSize(), transport.maxRequestBodySize());
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    boolean isBusy() {
+        return busy;
+    }
+
+    long lastActivity() {
+        return lastActivity;
+    }
+
+    NioEventLoop loop() {
+        return loop;
+    }
+
+    ByteBufferPool pool() {
+        return transport.pool();
+    }
+
+    SocketChannel channel() {
+        return channel;
+    }
+
+    // =========================
+    // READ PATH (event loop)
+    // =========================
+
+    void handleRead() {
+        if (readBuffer == null) {
+            readBuffer = transport.pool().acquire();
+        }
+
+        int n;
+        try {
+            n = channel.read(readBuffer);
+        } catch (IOException e) {
+            close();
+            return;
+        }
+
+        if (n < 0) {
+            inputClosed = true;
+            if (afterBody != null) {
+                // No handler is running yet to answer
+                close();
+                return;
+            }
+            if (requestBody != null) {
+                failBody(new EOFException("Connection closed before the request body was complete"));
+            }
+            if (!busy) {
+                close();
+            } else {
+                updateInterest();
+            }
+            return;
+        }
+
+        lastActivity = System.currentTimeMillis();
+        processInput();
+    }
+
+    private void processInput() {
+        while (readBuffer != null && readBuffer.position() > 0) {
+            if (requestBody != null) {
+                if (!receiveBody()) break;
+                continue;
+            }
+            if (busy) break;
+
+            ParsedRequest request;
+
+            readBuffer.flip();
+            try {
+                request = parser.parse(readBuffer);
+            } catch (HttpParseException e) {
+                readBuffer.clear();
+                sendError(e.getStatus(), e.getMessage());
+                return;
+            }
+            readBuffer.compact();
+
+            if (parser.takeExpectContinue()) {
+                writeQueue.add(ByteBuffer.wrap(CONTINUE));
+                pendingBytes.addAndGet(CONTINUE.length);
+                flush();
+            }
+
+            if (request == null) break;
+
+            if (!request.hasBody()) {
+                dispatch(request, null);
+            } else if (transport.executor() == null) {
+                NioRequestBody body = new NioRequestBody(this, transport.pool(), transport.idleTimeoutMillis());
+                body.receiveFully();
+                requestBody = body;
+                afterBody = () -> dispatch(request, body);
+            } else {
+                requestBody = new NioRequestBody(this, transport.pool(), transport.idleTimeoutMillis());
+                dispatch(request, requestBody);
+            }
+        }
+
+        if (readBuffer != null && readBuffer.position() == 0) {
+            // Nothing buffered: give the buffer back while the connection is idle or busy
+            transport.pool().release(readBuffer);
+            readBuffer = null;
+        }
+
+        if (!busy && inputClosed) {
+            close();
+            return;
+        }
+
+        updateInterest();
+    }
+
+    /**
+     * Passes buffered bytes to the body being received.
+     *
+     * @return true if the body is complete and the buffer may hold the next request
+     */
+    private boolean receiveBody() {
+        boolean complete;
+        readBuffer.flip();
+        try {
+            complete = parser.readBody(readBuffer, requestBody);
+        } catch (HttpParseException e) {
+            readBuffer.clear();
+            if (afterBody != null) {
+                sendError(e.getStatus(), e.getMessage());
+            } else {
+                // The handler already has the request: fail its body and read nothing more
+                failBody(new IOException(e.getMessage()));
+                inputClosed = true;
+            }
+            return false;
+        }
+        readBuffer.compact();
+
+        if (!complete) return false;
+
+        requestBody.finish();
+        requestBody = null;
+
+        if (afterBody != null) {
+            Runnable task = afterBody;
+            afterBody = null;
+            task.run();
+        }
+        return true;
+    }
+
+    private void failBody(IOException e) {
+        requestBody.fail(e);
+        if (afterBody != null) {
+            // Never handed to a handler: nobody else gives its buffers back
+            requestBody.close();
+            afterBody = null;
+        }
+        requestBody = null;
+    }
+
+    /**
+     * Called by the request body, from any thread, once the handler has caught up with it.
+     */
+    void resumeBody() {
+        loop.execute(this::updateInterest);
+    }
+
+    private void dispatch(ParsedRequest request, NioRequestBody body) {
+        URI uri;
+        try {
+            uri = request.target().equals("*") ? null : new URI(request.target());
+        } catch (URISyntaxException e) {
+            if (body != null) body.close();
+            sendError(400, "Malformed request target");
+            return;
+        }
+
+        busy = true;
+        requestCount++;
+
+        boolean keepAlive = request.keepAlive()
+                && !inputClosed
+                && requestCount < transport.maxRequestsPerConnection();
+
+        NioServerExchange exchange = new NioServerExchange(this, request, body, uri, keepAlive);
+        Runnable task = () -> handle(exchange);
+
+        Executor executor = transport.executor();
+        if (executor == null) {
+            task.run();
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                if (body != null && loop.inEventLoop() && !body.isFinished()) {
+                    // Run by the event loop itself because the executor is saturated: waiting
+                    // for the body here would stop the loop from reading it
+                    body.receiveFully();
+                    afterBody = task;
+                    return;
+                }
+                task.run();
+            });
+        } catch (RejectedExecutionException e) {
+            if (body != null) body.close();
+            sendError(503, "Server overloaded");
+        }
+    }
+
+    private void handle(NioServerExchange exchange) {
+        try {
+            transport.handler().handle(exchange);
+        } catch (Throwable t) {
+            transport.error("Request handler failed", t);
+            exchange.abort();
+        }
+    }
+
+    /**
+     * Called on the event loop once the response of the current request has been fully queued.
+     */
+    void responseComplete(boolean keepAlive) {
+        if (closed) return;
+
+        drainOutbound();
+
+        if (!keepAlive) {
+            closeAfterWrite = true;
+            flush();
+            return;
+        }
+
+        busy = false;
+        lastActivity = System.currentTimeMillis();
+        flush();
+        processInput();
+    }
+
+    private void sendError(int status, String message) {
+        busy = true;
+        if (requestBody != null) {
+            failBody(new IOException(message));
+        }
+        byte[] body = message.getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + status + " " + NioServerExchange.reasonPhrase(status) + "\r\n"
+                + "Content-Type: text/plain; charset=UTF-8\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Connection: close\r\n\r\n";
+        byte[] headBytes = head.getBytes(StandardCharsets.US_ASCII);
+        writeQueue.add(ByteBuffer.wrap(headBytes));
+        writeQueue.add(ByteBuffer.wrap(body));
+        pendingBytes.addAndGet(headBytes.length + body.length);
+        closeAfterWrite = true;
+        flush();
+    }
+
+    // =========================
+    // WRITE PATH
+    // =========================
+
+    /**
+     * Queues a buffer for writing. May be called from any thread.
+     *
+     * @throws IOException if the connection has been closed
+     */
+    void submit(ByteBuffer buffer) throws IOException {
+        if (closed) {
+            transport.pool().release(buffer);
+            throw new IOException("Connection closed");
+        }
+
+        pendingBytes.addAndGet(buffer.remaining());
+        enqueue(buffer);
+    }
+
+    /**
+     * Queues a file region, sent with zero-copy transfer. The file is closed once sent.
+     * File bytes don't count towards the watermark: the producer does not wait for them.
+     *
+     * @throws IOException if the connection has been closed
+     */
+    void submitFile(FileTransfer transfer) throws IOException {
+        if (closed) {
+            transfer.close();
+            throw new IOException("Connection closed");
+        }
+
+        enqueue(transfer);
+    }
+
+    private void enqueue(Object item) {
+        outbound.add(item);
+
+        if (loop.inEventLoop()) {
+            drainOutbound();
+            flush();
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            loop.execute(() -> {
+                flushScheduled.set(false);
+                drainOutbound();
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Blocks the calling producer while too many bytes are waiting to be written.
+     * Never blocks the event loop itself.
+     */
+    void awaitWritable() throws IOException {
+        if (loop.inEventLoop()) return;
+
+        synchronized (writableLock) {
+            while (!closed && pendingBytes.get() > HIGH_WATERMARK) {
+                try {
+                    writableLock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+
+        if (closed) {
+            throw new IOException("Connection closed");
+        }
+    }
+
+    void handleWrite() {
+        flush();
+    }
+
+    private void drainOutbound() {
+        Object item;
+        while ((item = outbound.poll()) != null) {
+            writeQueue.add(item);
+        }
+    }
+
+    private void flush() {
+        if (closed) return;
+
+        try {
+            while (!writeQueue.isEmpty()) {
+                if (writeQueue.peek() instanceof FileTransfer transfer) {
+                    long n = transfer.transferTo(channel);
+                    if (transfer.isDone()) {
+                        writeQueue.poll();
+                        transfer.close();
+                        continue;
+                    }
+                    if (n == 0) {
+                        // Socket send buffer is full: wait for OP_WRITE
+                        break;
+                    }
+                    continue;
+                }
+
+                int count = 0;
+                for (Object item : writeQueue) {
+                    if (!(item instanceof ByteBuffer buffer)) break;
+                    gather[count++] = buffer;
+                    if (count == MAX_GATHER) break;
+                }
+
+                long written = channel.write(gather, 0, count);
+                pendingBytes.addAndGet(-written);
+                boolean partial = gather[count - 1].hasRemaining();
+
+                while (writeQueue.peek() instanceof ByteBuffer buffer && !buffer.hasRemaining()) {
+                    transport.pool().release((ByteBuffer) writeQueue.poll());
+                }
+
+                if (partial) {
+                    // Socket send buffer is full: wait for OP_WRITE
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            close();
+            return;
+        } finally {
+            Arrays.fill(gather, null);
+        }
+
+        lastActivity = System.currentTimeMillis();
+
+        if (pendingBytes.get() <= LOW_WATERMARK) {
+            synchronized (writableLock) {
+                writableLock.notifyAll();
+            }
+        }
+
+        if (writeQueue.isEmpty() && closeAfterWrite) {
+            close();
+            return;
+        }
+
+        updateInterest();
+    }
+
+    private void updateInterest() {
+        if (closed || key == null || !key.isValid()) return;
+
+        int ops = 0;
+        boolean reading = requestBody != null ? !requestBody.pause() : !busy;
+        if (reading && !inputClosed) ops |= SelectionKey.OP_READ;
+        if (!writeQueue.isEmpty()) ops |= SelectionKey.OP_WRITE;
+
+        if (key.interestOps() != ops) {
+            key.interestOps(ops);
+        }
+    }
+
+    /**
+     * Closes the connection. Safe to call from any thread.
+     */
+    void close() {
+        if (!loop.inEventLoop()) {
+            loop.execute(this::close);
+            return;
+        }
+        if (closed) return;
+        closed = true;
+
+        if (key != null) key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Already closed by the peer
+        }
+
+        transport.pool().release(readBuffer);
+        readBuffer = null;
+        if (requestBody != null) {
+            failBody(new EOFException("Connection closed before the request body was complete"));
+        }
+        drainOutbound();
+        while (!writeQueue.isEmpty()) {
+            Object item = writeQueue.poll();
+            if (item instanceof FileTransfer transfer) {
+                transfer.close();
+            } else {
+                transport.pool().release((ByteBuffer) item);
+            }
+        }
+
+        synchronized (writableLock) {
+            writableLock.notifyAll();
+        }
+
+        loop.unregister(this);
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+}
@@ -0,0 +1,174 @@
+package com.abidev.http.transport;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A single selector thread. Owns the connections registered with it: all of their state
+ * is only touched on this thread, other threads hand work over with {@link #execute(Runnable)}.
+ */
+final class NioEventLoop implements Runnable {
+
+    private final NioHttpTransport transport;
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<NioConnection> connections = new HashSet<>();
+
+    private volatile boolean running = true;
+    private long lastIdleCheck = System.currentTimeMillis();
+
+    NioEventLoop(NioHttpTransport transport, String name) throws IOException {
+        this.transport = transport;
+        this.selector = Selector.open();
+        this.thread = new Thread(this, name);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Runs the task on this loop's thread, after the tasks submitted before it.
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (!inEventLoop()) {
+            selector.wakeup();
+        }
+    }
+
+    void register(SocketChannel channel) {
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                NioConnection connection = new NioConnection(this, transport, channel);
+                connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+                connections.add(connection);
+            } catch (IOException e) {
+                closeQuietly(channel);
+            }
+        });
+    }
+
+    void unregister(NioConnection connection) {
+        connections.remove(connection);
+    }
+
+    /**
+     * @return true if any connection of this loop is still processing a request
+     */
+    boolean hasBusyConnections() {
+        for (NioConnection connection : new ArrayList<>(connections)) {
+            if (connection.isBusy()) return true;
+        }
+        return false;
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    void awaitTermination(long millis) throws InterruptedException {
+        thread.join(millis);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                try {
+                    selector.select(1000);
+                } catch (IOException e) {
+                    if (!selector.isOpen()) {
+                        transport.error("Event loop " + thread.getName() + " lost its selector", e);
+                        return;
+                    }
+                    transport.error("Select failed on event loop " + thread.getName(), e);
+                }
+                runTasks();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    NioConnection connection = (NioConnection) key.attachment();
+                    if (!key.isValid()) continue;
+
+                    try {
+                        if (key.isWritable()) {
+                            connection.handleWrite();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            connection.handleRead();
+                        }
+                    } catch (RuntimeException e) {
+                        // Drop this connection only; the others on the loop keep being served
+                        transport.error("Closing connection after an unexpected failure", e);
+                        connection.close();
+                    }
+                }
+
+                runTasks();
+                closeIdleConnections();
+            }
+        } finally {
+            runTasks();
+            for (NioConnection connection : new ArrayList<>(connections)) {
+                connection.close();
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                transport.error("Event loop task failed", e);
+            }
+        }
+    }
+
+    private void closeIdleConnections() {
+        long now = System.currentTimeMillis();
+        if (now - lastIdleCheck < 1000) return;
+        lastIdleCheck = now;
+
+        long idleTimeout = transport.idleTimeoutMillis();
+        for (NioConnection connection : new ArrayList<>(connections)) {
+            if (!connection.isBusy() && now - connection.lastActivity() > idleTimeout) {
+                connection.close();
+            }
+        }
+    }
+
+    static void closeQuietly(SocketChannel channel) {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Already closed
+        }
+    }
+}
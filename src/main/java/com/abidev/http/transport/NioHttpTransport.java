@@ -0,0 +1,270 @@
+package com.abidev.http.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+
+/**
+ * Selector-based HTTP/1.1 transport.
+ * <p>
+ * One acceptor thread accepts connections and distributes them round-robin over
+ * {@code ioThreads} event loops. Each event loop parses requests and writes responses for
+ * its connections; handlers run on the executor given to {@link #start}, or on the event
+ * loop itself when it is null.
+ * <p>
+ * Connections are persistent (keep-alive) and pipelined requests are parsed from the same
+ * read buffer. Read and write buffers are direct buffers taken from a shared pool and only
+ * held while there is data in them, so idle connections cost no buffer memory.
+ */
+public class NioHttpTransport implements HttpTransport {
+
+    // Same channel as the JDK transport, whose HttpServer reports its failures through System.Logger
+    private static final System.Logger LOG = System.getLogger(NioHttpTransport.class.getName());
+
+    private final int ioThreads;
+    private final int bufferSize;
+    private final int maxPooledBuffers;
+    private final int maxHeaderSize;
+    private final long maxRequestBodySize;
+    private final long idleTimeoutMillis;
+    private final int maxRequestsPerConnection;
+
+    private ByteBufferPool pool;
+    private NioEventLoop[] loops;
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    private Executor executor;
+    private ExchangeHandler handler;
+
+    public NioHttpTransport() {
+        this(builder());
+    }
+
+    private NioHttpTransport(Builder builder) {
+        this.ioThreads = builder.ioThreads;
+        this.bufferSize = builder.bufferSize;
+        this.maxPooledBuffers = builder.maxPooledBuffers;
+        this.maxHeaderSize = builder.maxHeaderSize;
+        this.maxRequestBodySize = builder.maxRequestBodySize;
+        this.idleTimeoutMillis = builder.idleTimeoutMillis;
+        this.maxRequestsPerConnection = builder.maxRequestsPerConnection;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public void start(InetSocketAddress address, int backlog, Executor executor, ExchangeHandler handler)
+            throws IOException {
+
+        this.executor = executor;
+        this.handler = handler;
+        this.pool = new ByteBufferPool(bufferSize, maxPooledBuffers);
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(address, backlog);
+
+        loops = new NioEventLoop[ioThreads];
+        for (int i = 0; i < ioThreads; i++) {
+            loops[i] = new NioEventLoop(this, "abi-nio-loop-" + (i + 1));
+            loops[i].start();
+        }
+
+        acceptor = new Thread(this::acceptLoop, "abi-nio-acceptor");
+        acceptor.start();
+    }
+
+    private void acceptLoop() {
+        int next = 0;
+        while (serverChannel.isOpen()) {
+            SocketChannel channel = null;
+            try {
+                channel = serverChannel.accept();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                // Only this connection is lost: keep accepting
+                error("Failed to accept a connection", e);
+                NioEventLoop.closeQuietly(channel);
+            }
+        }
+    }
+
+    @Override
+    public void stop(int delaySeconds) {
+        if (serverChannel == null) return;
+
+        try {
+            serverChannel.close();
+        } catch (IOException ignored) {
+            // Closing anyway
+        }
+
+        long deadline = System.currentTimeMillis() + delaySeconds * 1000L;
+        try {
+            while (System.currentTimeMillis() < deadline && hasBusyConnections()) {
+                Thread.sleep(50);
+            }
+            for (NioEventLoop loop : loops) {
+                loop.shutdown();
+            }
+            for (NioEventLoop loop : loops) {
+                loop.awaitTermination(1000);
+            }
+            acceptor.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        serverChannel = null;
+    }
+
+    private boolean hasBusyConnections() {
+        for (NioEventLoop loop : loops) {
+            if (loop.hasBusyConnections()) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String name() {
+        return "nio(" + ioThreads + " loops)";
+    }
+
+    ByteBufferPool pool() {
+        return pool;
+    }
+
+    Executor executor() {
+        return executor;
+    }
+
+    ExchangeHandler handler() {
+        return handler;
+    }
+
+    /**
+     * Reports a failure that no response can carry, such as one on the event loop.
+     */
+    void error(String message, Throwable e) {
+        LOG.log(System.Logger.Level.ERROR, message, e);
+    }
+
+    int maxHeaderSize() {
+        return maxHeaderSize;
+    }
+
+    long maxRequestBodySize() {
+        return maxRequestBodySize;
+    }
+
+    long idleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    int maxRequestsPerConnection() {
+        return maxRequestsPerConnection;
+    }
+
+    public static class Builder {
+        private int ioThreads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        private int bufferSize = 16 * 1024;
+        private int maxPooledBuffers = 1024;
+        private int maxHeaderSize = 8 * 1024;
+        private long maxRequestBodySize = Integer.MAX_VALUE;
+        private long idleTimeoutMillis = 30_000;
+        private int maxRequestsPerConnection = 10_000;
+
+        private Builder() {
+        }
+
+        /**
+         * Number of event loops (selector threads).
+         */
+        public Builder ioThreads(int ioThreads) {
+            this.ioThreads = positive("ioThreads", ioThreads);
+            return this;
+        }
+
+        /**
+         * Size of the pooled direct buffers; also bounds the request head.
+         */
+        public Builder bufferSize(int bufferSize) {
+            this.bufferSize = positive("bufferSize", bufferSize);
+            return this;
+        }
+
+        /**
+         * Maximum number of idle buffers kept in the pool.
+         */
+        public Builder maxPooledBuffers(int maxPooledBuffers) {
+            this.maxPooledBuffers = positive("maxPooledBuffers", maxPooledBuffers);
+            return this;
+        }
+
+        /**
+         * Maximum size of the request line plus headers; larger requests get 431.
+         */
+        public Builder maxHeaderSize(int maxHeaderSize) {
+            this.maxHeaderSize = positive("maxHeaderSize", maxHeaderSize);
+            return this;
+        }
+
+        /**
+         * Hard ceiling on a request body, at most {@link Integer#MAX_VALUE}; larger requests get
+         * 413. Bodies are streamed to the handler, so this is not memory held per connection:
+         * the per-route limits of the handler usually apply well before it.
+         */
+        public Builder maxRequestBodySize(long maxRequestBodySize) {
+            if (maxRequestBodySize > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("maxRequestBodySize must be at most " + Integer.MAX_VALUE
+                        + ": " + maxRequestBodySize);
+            }
+            this.maxRequestBodySize = positive("maxRequestBodySize", maxRequestBodySize);
+            return this;
+        }
+
+        /**
+         * Time after which an idle keep-alive connection is closed.
+         */
+        public Builder idleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = positive("idleTimeoutMillis", idleTimeoutMillis);
+            return this;
+        }
+
+        /**
+         * Number of requests served on one connection before it is closed.
+         */
+        public Builder maxRequestsPerConnection(int maxRequestsPerConnection) {
+            this.maxRequestsPerConnection = positive("maxRequestsPerConnection", maxRequestsPerConnection);
+            return this;
+        }
+
+        public NioHttpTransport build() {
+            if (maxHeaderSize > bufferSize) {
+                throw new IllegalArgumentException(
+                        "maxHeaderSize (" + maxHeaderSize + ") must not exceed bufferSize (" + bufferSize + ")");
+            }
+            return new NioHttpTransport(this);
+        }
+
+        private static int positive(String name, int value) {
+            if (value <= 0) throw new IllegalArgumentException(name + " must be positive: " + value);
+            return value;
+        }
+
+        private static long positive(String name, long value) {
+            if (value <= 0) throw new IllegalArgumentException(name + " must be positive: " + value);
+            return value;
+        }
+    }
+}
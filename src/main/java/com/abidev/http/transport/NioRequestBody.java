@@ -0,0 +1,204 @@
+package com.abidev.http.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Request body of the NIO transport, streamed to the handler as it arrives.
+ * <p>
+ * The event loop copies received body bytes into pooled buffers and queues them; the handler
+ * thread reads them and gives each buffer back once consumed. The connection stops reading once
+ * {@link #MAX_QUEUED} buffers are waiting and the handler resumes it, so a large upload never
+ * holds more than a few buffers. A handler that runs on the event loop itself cannot wait for
+ * its body; such a body is {@linkplain #receiveFully() received in full} before it runs.
+ */
+final class NioRequestBody extends InputStream {
+
+    static final int MAX_QUEUED = 4;
+
+    private final NioConnection connection;
+    private final ByteBufferPool pool;
+    private final long readTimeoutMillis;
+
+    // Guarded by this; the buffers in the queue are in read mode
+    private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+    private ByteBuffer current;
+    private boolean bounded = true;
+    private boolean finished;
+    private boolean discarded;
+    private boolean paused;
+    private IOException failure;
+
+    NioRequestBody(NioConnection connection, ByteBufferPool pool, long readTimeoutMillis) {
+        this.connection = connection;
+        this.pool = pool;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    // =========================
+    // EVENT LOOP SIDE
+    // =========================
+
+    /**
+     * Takes {@code count} bytes from the source buffer, which must be in read mode.
+     */
+    synchronized void append(ByteBuffer source, int count) {
+        if (discarded) {
+            source.position(source.position() + count);
+            return;
+        }
+
+        int end = source.position() + count;
+        while (source.position() < end) {
+            ByteBuffer tail = queue.peekLast();
+            if (tail == null || tail.limit() == tail.capacity()) {
+                tail = pool.acquire();
+                tail.limit(0);
+                queue.add(tail);
+            }
+
+            // Not visible to the reader yet (it only reads the buffer it took off the queue): fill it up
+            int n = Math.min(end - source.position(), tail.capacity() - tail.limit());
+            int limit = source.limit();
+            source.limit(source.position() + n);
+            tail.position(tail.limit()).limit(tail.limit() + n);
+            tail.put(source);
+            tail.position(0);
+            source.limit(limit);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Never pauses the connection, for a body that must be complete before its handler runs.
+     */
+    synchronized void receiveFully() {
+        bounded = false;
+    }
+
+    /**
+     * @return whether the connection should stop reading until the handler catches up
+     */
+    synchronized boolean pause() {
+        paused = bounded && !discarded && queue.size() >= MAX_QUEUED;
+        return paused;
+    }
+
+    synchronized void finish() {
+        finished = true;
+        notifyAll();
+    }
+
+    synchronized void fail(IOException e) {
+        if (!finished && failure == null) {
+            failure = e;
+        }
+        notifyAll();
+    }
+
+    synchronized boolean isFinished() {
+        return finished;
+    }
+
+    // =========================
+    // HANDLER SIDE
+    // =========================
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!next()) {
+            return -1;
+        }
+        int n = Math.min(len, current.remaining());
+        current.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public synchronized int available() {
+        int available = current != null ? current.remaining() : 0;
+        for (ByteBuffer buffer : queue) {
+            available += buffer.remaining();
+        }
+        return available;
+    }
+
+    /**
+     * Makes {@link #current} a buffer with bytes left, waiting for the event loop if needed.
+     *
+     * @return false at the end of the body
+     */
+    private boolean next() throws IOException {
+        long deadline = System.currentTimeMillis() + readTimeoutMillis;
+        while (current == null || !current.hasRemaining()) {
+            if (current != null) {
+                pool.release(current);
+                current = null;
+            }
+            if (discarded) {
+                throw new IOException("Request body closed");
+            }
+            current = queue.poll();
+            if (current != null) {
+                if (paused && queue.size() < MAX_QUEUED) {
+                    paused = false;
+                    connection.resumeBody();
+                }
+                continue;
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            if (finished) {
+                return false;
+            }
+
+            long wait = deadline - System.currentTimeMillis();
+            if (wait <= 0) {
+                throw new SocketTimeoutException("No request body bytes received for " + readTimeoutMillis + " ms");
+            }
+            try {
+                wait(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading the request body", e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gives the buffers back to the pool; bytes still arriving are dropped. Safe to call from
+     * any thread, more than once.
+     */
+    @Override
+    public synchronized void close() {
+        if (discarded) {
+            return;
+        }
+        discarded = true;
+        pool.release(current);
+        current = null;
+        ByteBuffer buffer;
+        while ((buffer = queue.poll()) != null) {
+            pool.release(buffer);
+        }
+        if (paused) {
+            paused = false;
+            connection.resumeBody();
+        }
+        notifyAll();
+    }
+}
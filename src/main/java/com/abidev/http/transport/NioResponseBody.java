@@ -0,0 +1,201 @@
+package com.abidev.http.transport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Response body stream of the NIO transport. Bytes are copied into pooled direct buffers,
+ * which are handed to the connection when full, on {@link #flush()} and on {@link #close()}.
+ * <p>
+ * In chunked mode every buffer becomes one chunk: the first {@link #CHUNK_HEADER} bytes are
+ * reserved for the chunk size line and the last two for the trailing CRLF, so framing
+ * never requires an extra copy.
+ */
+final class NioResponseBody extends OutputStream {
+
+    enum Mode { NONE, FIXED, CHUNKED, CLOSE_DELIMITED }
+
+    private static final int CHUNK_HEADER = 10;
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final NioServerExchange exchange;
+    private final NioConnection connection;
+
+    private Mode mode;
+    private long remaining;
+    private byte[] head;
+    private ByteBuffer current;
+    private boolean closed;
+
+    NioResponseBody(NioServerExchange exchange, NioConnection connection) {
+        this.exchange = exchange;
+        this.connection = connection;
+    }
+
+    void begin(Mode mode, long length, byte[] head) throws IOException {
+        this.mode = mode;
+        this.remaining = length;
+        this.head = head;
+
+        if (mode == Mode.CHUNKED || mode == Mode.CLOSE_DELIMITED) {
+            // Streaming responses: let the client see the status line right away
+            submitHead();
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+
+        if (mode == Mode.NONE) {
+            // HEAD, 204 and 304 responses never carry a body
+            return;
+        }
+
+        if (mode == Mode.FIXED) {
+            if (len > remaining) {
+                throw new IOException("Too many bytes for Content-Length: " + len + " > " + remaining);
+            }
+            remaining -= len;
+        }
+
+        while (len > 0) {
+            if (current == null) {
+                acquire();
+            }
+            int n = Math.min(len, current.remaining());
+            current.put(b, off, n);
+            off += n;
+            len -= n;
+
+            if (!current.hasRemaining()) {
+                submitCurrent();
+                connection.awaitWritable();
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        submitHead();
+        submitCurrent();
+        connection.awaitWritable();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+
+        try {
+            submitHead();
+            submitCurrent();
+            if (mode == Mode.CHUNKED) {
+                connection.submit(ByteBuffer.wrap(LAST_CHUNK));
+            }
+        } finally {
+            if (current != null) {
+                // Empty chunk buffer that was never submitted
+                connection.pool().release(current);
+                current = null;
+            }
+            exchange.complete(mode != Mode.FIXED || remaining == 0);
+        }
+    }
+
+    /**
+     * Sends a file region. With a known Content-Length the region is handed to the event loop
+     * for zero-copy transfer; chunked bodies copy it through the pooled buffers instead.
+     */
+    void sendFile(FileChannel file, long position, long count) throws IOException {
+        try {
+            ensureOpen();
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+
+        if (mode == Mode.NONE) {
+            file.close();
+            return;
+        }
+
+        if (mode != Mode.FIXED) {
+            try (file) {
+                file.transferTo(position, count, Channels.newChannel(this));
+            }
+            return;
+        }
+
+        if (count > remaining) {
+            file.close();
+            throw new IOException("Too many bytes for Content-Length: " + count + " > " + remaining);
+        }
+        remaining -= count;
+
+        submitHead();
+        submitCurrent();
+        connection.submitFile(new FileTransfer(file, position, count));
+    }
+
+    private void ensureOpen() throws IOException {
+        if (mode == null) {
+            throw new IOException("sendResponseHeaders() has not been called");
+        }
+        if (closed) {
+            throw new IOException("Response body closed");
+        }
+    }
+
+    private void acquire() {
+        current = connection.pool().acquire();
+        if (mode == Mode.CHUNKED) {
+            current.position(CHUNK_HEADER);
+            current.limit(current.capacity() - 2);
+        }
+    }
+
+    private void submitHead() throws IOException {
+        if (head != null) {
+            byte[] bytes = head;
+            head = null;
+            connection.submit(ByteBuffer.wrap(bytes));
+        }
+    }
+
+    private void submitCurrent() throws IOException {
+        if (current == null) return;
+
+        ByteBuffer buffer = current;
+
+        if (mode == Mode.CHUNKED) {
+            int size = buffer.position() - CHUNK_HEADER;
+            if (size == 0) return;
+
+            byte[] sizeLine = (Integer.toHexString(size) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+            int start = CHUNK_HEADER - sizeLine.length;
+            buffer.put(start, sizeLine);
+            buffer.limit(buffer.capacity());
+            buffer.put((byte) '\r').put((byte) '\n');
+            buffer.limit(buffer.position());
+            buffer.position(start);
+        } else {
+            if (buffer.position() == 0) return;
+            buffer.flip();
+        }
+
+        current = null;
+        submitHead();
+        connection.submit(buffer);
+    }
+}
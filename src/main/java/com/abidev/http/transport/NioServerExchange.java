@@ -0,0 +1,272 @@
+package com.abidev.http.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link ServerExchange} of the NIO transport. The exchange is created once the request head
+ * is received; the request body is streamed through {@link NioRequestBody} and the response
+ * through {@link NioResponseBody}.
+ */
+final class NioServerExchange implements ServerExchange {
+
+    private static volatile String cachedDate = "";
+    private static volatile long cachedDateSecond;
+
+    private final NioConnection connection;
+    private final ParsedRequest request;
+    private final NioRequestBody requestBody;
+    private final URI uri;
+    private final boolean head;
+    private boolean keepAlive;
+
+    private final Map<String, List<String>> responseHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final NioResponseBody responseBody;
+    private boolean headersSent;
+    private boolean completed;
+
+    /**
+     * @param requestBody the body being received, or null if the request has none
+     */
+    NioServerExchange(NioConnection connection, ParsedRequest request, NioRequestBody requestBody,
+                      URI uri, boolean keepAlive) {
+        this.connection = connection;
+        this.request = request;
+        this.requestBody = requestBody;
+        this.uri = uri;
+        this.keepAlive = keepAlive;
+        this.head = request.method().equals("HEAD");
+        this.responseBody = new NioResponseBody(this, connection);
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return request.method();
+    }
+
+    @Override
+    public String getRequestPath() {
+        if (uri == null) return "*";
+        String path = uri.getPath();
+        return path == null || path.isEmpty() ? "/" : path;
+    }
+
+    @Override
+    public String getRawQuery() {
+        return uri == null ? null : uri.getRawQuery();
+    }
+
+    @Override
+    public Map<String, List<String>> getRequestHeaders() {
+        return request.headers();
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return requestBody != null ? requestBody : InputStream.nullInputStream();
+    }
+
+    @Override
+    public Map<String, List<String>> getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public void sendResponseHeaders(int status, long responseLength) throws IOException {
+        if (headersSent) {
+            throw new IOException("Headers already sent");
+        }
+        headersSent = true;
+
+        boolean noBody = responseLength < 0 || head || status == 204 || status == 304 || status < 200;
+        boolean chunked = !noBody && responseLength == 0 && request.isHttp11();
+
+        if (!noBody && responseLength == 0 && !chunked) {
+            // HTTP/1.0 client and unknown length: the body ends when the connection closes
+            keepAlive = false;
+        }
+
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("HTTP/1.1 ").append(status).append(' ').append(reasonPhrase(status)).append("\r\n");
+        sb.append("Date: ").append(httpDate()).append("\r\n");
+
+        for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+            String name = header.getKey();
+            if (name.equalsIgnoreCase("Content-Length") || name.equalsIgnoreCase("Transfer-Encoding")
+                    || name.equalsIgnoreCase("Connection")) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                sb.append(name).append(": ").append(value).append("\r\n");
+            }
+        }
+
+        if (responseLength > 0) {
+            sb.append("Content-Length: ").append(responseLength).append("\r\n");
+        } else if (chunked) {
+            sb.append("Transfer-Encoding: chunked\r\n");
+        } else if (responseLength < 0 && !head && status >= 200 && status != 204 && status != 304) {
+            // A HEAD response describes the GET body, so an unknown length is left out instead
+            sb.append("Content-Length: 0\r\n");
+        }
+
+        if (!keepAlive) {
+            sb.append("Connection: close\r\n");
+        } else if (!request.isHttp11()) {
+            sb.append("Connection: keep-alive\r\n");
+        }
+        sb.append("\r\n");
+
+        NioResponseBody.Mode mode;
+        if (noBody) {
+            mode = NioResponseBody.Mode.NONE;
+        } else if (chunked) {
+            mode = NioResponseBody.Mode.CHUNKED;
+        } else if (responseLength > 0) {
+            mode = NioResponseBody.Mode.FIXED;
+        } else {
+            mode = NioResponseBody.Mode.CLOSE_DELIMITED;
+        }
+
+        responseBody.begin(mode, responseLength, sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return responseBody;
+    }
+
+    @Override
+    public void sendFile(FileChannel file, long position, long count) throws IOException {
+        responseBody.sendFile(file, position, count);
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        try {
+            return (InetSocketAddress) connection.channel().getRemoteAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (completed) return;
+
+        if (!headersSent) {
+            // Handler gave up without answering; don't reuse the connection
+            keepAlive = false;
+            completed = true;
+            discardRequestBody();
+            connection.loop().execute(() -> connection.responseComplete(false));
+            return;
+        }
+
+        try {
+            responseBody.close();
+        } catch (IOException e) {
+            keepAlive = false;
+        }
+    }
+
+    /**
+     * Called by the response body once its last byte has been queued.
+     *
+     * @param bodyComplete false if fewer bytes than announced were written
+     */
+    void complete(boolean bodyComplete) {
+        if (completed) return;
+        completed = true;
+
+        // The rest of an unread request body would be taken for the next request
+        boolean reuse = keepAlive && bodyComplete && (requestBody == null || requestBody.isFinished());
+        discardRequestBody();
+        connection.loop().execute(() -> connection.responseComplete(reuse));
+    }
+
+    /**
+     * Answers with 500 if the handler failed before sending headers, otherwise drops the connection.
+     */
+    @Override
+    public void abort() {
+        if (completed) return;
+
+        if (!headersSent) {
+            try {
+                responseHeaders.clear();
+                responseHeaders.put("Content-Type", List.of("text/plain; charset=UTF-8"));
+                keepAlive = false;
+                sendResponseHeaders(500, -1);
+                close();
+                return;
+            } catch (IOException ignored) {
+                // Fall through to closing the connection
+            }
+        }
+
+        completed = true;
+        discardRequestBody();
+        connection.close();
+    }
+
+    private void discardRequestBody() {
+        if (requestBody != null) {
+            requestBody.close();
+        }
+    }
+
+    static String reasonPhrase(int status) {
+        return switch (status) {
+            case 100 -> "Continue";
+            case 200 -> "OK";
+            case 201 -> "Created";
+            case 202 -> "Accepted";
+            case 204 -> "No Content";
+            case 206 -> "Partial Content";
+            case 301 -> "Moved Permanently";
+            case 302 -> "Found";
+            case 304 -> "Not Modified";
+            case 400 -> "Bad Request";
+            case 401 -> "Unauthorized";
+            case 403 -> "Forbidden";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 408 -> "Request Timeout";
+            case 411 -> "Length Required";
+            case 413 -> "Content Too Large";
+            case 416 -> "Range Not Satisfiable";
+            case 429 -> "Too Many Requests";
+            case 431 -> "Request Header Fields Too Large";
+            case 500 -> "Internal Server Error";
+            case 501 -> "Not Implemented";
+            case 503 -> "Service Unavailable";
+            case 504 -> "Gateway Timeout";
+            case 505 -> "HTTP Version Not Supported";
+            default -> "Status " + status;
+        };
+    }
+
+    /**
+     * The Date header only changes once per second, so format it at most once per second.
+     */
+    private static String httpDate() {
+        long second = System.currentTimeMillis() / 1000;
+        if (second != cachedDateSecond) {
+            cachedDate = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC));
+            cachedDateSecond = second;
+        }
+        return cachedDate;
+    }
+}
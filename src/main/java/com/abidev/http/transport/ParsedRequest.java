@@ -0,0 +1,34 @@
+package com.abidev.http.transport;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A received request head, as produced by {@link HttpRequestParser}.
+ *
+ * @param hasBody whether a body follows the head
+ */
+record ParsedRequest(String method, String target, String version,
+                     Map<String, List<String>> headers, boolean hasBody) {
+
+    boolean isHttp11() {
+        return "HTTP/1.1".equals(version);
+    }
+
+    /**
+     * HTTP/1.1 connections are persistent unless the client asks to close them;
+     * HTTP/1.0 connections only if the client asks to keep them.
+     */
+    boolean keepAlive() {
+        String connection = firstHeader("Connection");
+        if (isHttp11()) {
+            return connection == null || !connection.equalsIgnoreCase("close");
+        }
+        return connection != null && connection.equalsIgnoreCase("keep-alive");
+    }
+
+    String firstHeader(String name) {
+        List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+}
@@ -0,0 +1,143 @@
+package com.abidev.http.transport;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single HTTP request/response pair, independent of the transport engine that carries it.
+ * <p>
+ * The contract mirrors {@code com.sun.net.httpserver.HttpExchange}: headers are sent with
+ * {@link #sendResponseHeaders(int, long)} before the body is written, and the exchange stays
+ * open until {@link #close()} is called, even after the handler has returned.
+ */
+public interface ServerExchange {
+
+    /**
+     * @return the request method, e.g. {@code GET}
+     */
+    String getRequestMethod();
+
+    /**
+     * @return the decoded request path, without the query string
+     */
+    String getRequestPath();
+
+    /**
+     * @return the raw (still encoded) query string, or null if there is none
+     */
+    String getRawQuery();
+
+    /**
+     * Returns the request headers. Lookups by name are case-insensitive.
+     *
+     * @return the request headers
+     */
+    Map<String, List<String>> getRequestHeaders();
+
+    /**
+     * @return the request body; an empty stream if the request has no body
+     */
+    InputStream getRequestBody();
+
+    /**
+     * Returns the mutable response headers. They must be set before
+     * {@link #sendResponseHeaders(int, long)} is called.
+     *
+     * @return the response headers
+     */
+    Map<String, List<String>> getResponseHeaders();
+
+    /**
+     * Starts the response.
+     *
+     * @param status         the HTTP status code
+     * @param responseLength the body length in bytes; 0 for a chunked body of unknown length,
+     *                       -1 if there is no body
+     * @throws IOException if the response can no longer be sent
+     */
+    void sendResponseHeaders(int status, long responseLength) throws IOException;
+
+    /**
+     * @return the stream the response body is written to
+     */
+    OutputStream getResponseBody();
+
+    /**
+     * Writes a region of a file as (part of) the response body, after
+     * {@link #sendResponseHeaders(int, long)}. The exchange takes ownership of the channel and
+     * closes it once the region has been sent.
+     * <p>
+     * The default implementation copies the region through {@link #getResponseBody()};
+     * transports that can hand the file to the kernel override it.
+     *
+     * @param file     an open, readable file channel
+     * @param position the offset of the first byte to send
+     * @param count    the number of bytes to send
+     * @throws IOException if the file cannot be read or the response cannot be written
+     */
+    default void sendFile(FileChannel file, long position, long count) throws IOException {
+        try (file) {
+            WritableByteChannel target = Channels.newChannel(getResponseBody());
+            long sent = 0;
+            while (sent < count) {
+                long n = file.transferTo(position + sent, count - sent, target);
+                if (n <= 0) {
+                    throw new EOFException("File ended before " + count + " bytes were sent");
+                }
+                sent += n;
+            }
+        }
+    }
+
+    /**
+     * @return the address of the client
+     */
+    InetSocketAddress getRemoteAddress();
+
+    /**
+     * Completes the exchange. Closes the request and response streams.
+     */
+    void close();
+
+    /**
+     * Drops the connection without completing the response, e.g. to cut off a client that
+     * stopped reading. Unlike {@link #close()} it may be called from any thread, even while
+     * another thread is blocked writing the body, and never blocks.
+     * <p>
+     * The default implementation does nothing: transports that cannot drop a connection from
+     * another thread (such as the JDK server) leave it to the thread writing the response,
+     * which stays blocked until the client reads or goes away.
+     */
+    default void abort() {
+    }
+
+    /**
+     * Returns the first value of a request header.
+     *
+     * @param name the header name, in any case
+     * @return the first value, or null if the header is absent
+     */
+    default String getRequestHeader(String name) {
+        List<String> values = getRequestHeaders().get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * Adds a response header value.
+     *
+     * @param name  the header name
+     * @param value the header value
+     */
+    default void addResponseHeader(String name, String value) {
+        getResponseHeaders().computeIfAbsent(name, k -> new ArrayList<>(1)).add(value);
+    }
+}
@@ -1,62 +1,320 @@
 package com.abidev.middleware;
 
-import com.sun.net.httpserver.HttpExchange;
+import com.abidev.http.LimitedInputStream;
+import com.abidev.http.QueryParamsUtils;
+import com.abidev.http.transport.ServerExchange;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * The request as seen by interceptors and resolvers.
+ * <p>
+ * Nothing is copied up front: path variables, query parameters and headers are read from
+ * the router's match and the exchange on first access, so a handler only pays for what it
+ * uses.
+ */
 public class RequestContext {
 
-    private final String body;
     private final String path;
-    private final Map<String, String> pathVariables;
-    private final Map<String, String> queryParams;
-    private final Map<String, Object> attributes = new HashMap<>();
-    private final HttpExchange exchange;
-    private final Map<String, String> headers;
+    private final String[] variableNames;
+    private final String[] variableValues;
+    private final ServerExchange exchange;
+    private final long maxBodySize;
 
-    public RequestContext(String body, String path,
+    // Built on first access
+    private Map<String, String> pathVariables;
+    private Map<String, List<String>> queryParamValues;
+    private Map<String, String> queryParams;
+    private Map<String, String> headers;
+    private Map<String, Object> attributes;
+    private Map<Class<?>, Object> scopedBeans;
+
+    // The body is only read when a resolver or handler asks for it
+    private InputStream bodyStream;
+    private byte[] bodyBytes;
+    private String body;
+
+    /**
+     * Creates a context from prepared maps. Header names must be in lower case.
+     */
+    public RequestContext(String path,
                           Map<String, String> pathVariables,
                           Map<String, String> queryParams,
                           Map<String, String> headers,
-                          HttpExchange exchange) {
-        this.body = body;
-        this.path = path;
+                          ServerExchange exchange,
+                          long maxBodySize) {
+        this(path, new String[0], new String[0], exchange, maxBodySize);
         this.pathVariables = pathVariables;
         this.queryParams = queryParams;
         this.headers = headers;
+        Map<String, List<String>> values = new HashMap<>();
+        if (queryParams != null) {
+            queryParams.forEach((name, value) -> values.put(name, List.of(value)));
+        }
+        this.queryParamValues = values;
+    }
+
+    /**
+     * Creates a lazy context.
+     *
+     * @param variableNames  the path variable names, in route pattern order
+     * @param variableValues the values captured by the router, in the same order
+     */
+    public RequestContext(String path,
+                          String[] variableNames,
+                          String[] variableValues,
+                          ServerExchange exchange,
+                          long maxBodySize) {
+        this.path = path;
+        this.variableNames = variableNames;
+        this.variableValues = variableValues;
         this.exchange = exchange;
+        this.maxBodySize = maxBodySize;
     }
 
+    /**
+     * Returns the request body as a stream, limited to the route's maximum body size.
+     * The stream can only be consumed once, and not after {@link #getBody()} has read the body.
+     *
+     * @return the body stream
+     * @throws com.abidev.http.PayloadTooLargeException while reading, if the body is too large
+     */
+    public InputStream getBodyStream() {
+        if (bodyBytes != null) {
+            return new ByteArrayInputStream(bodyBytes);
+        }
+        if (bodyStream == null) {
+            bodyStream = new LimitedInputStream(exchange.getRequestBody(), maxBodySize);
+        }
+        return bodyStream;
+    }
+
+    /**
+     * Reads the whole request body on first call and decodes it with the charset of the
+     * Content-Type header (UTF-8 by default).
+     *
+     * @return the body, or an empty string if the request has none
+     * @throws com.abidev.http.PayloadTooLargeException if the body is too large
+     */
     public String getBody() {
+        if (body == null) {
+            if (bodyBytes == null) {
+                try {
+                    bodyBytes = getBodyStream().readAllBytes();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read request body", e);
+                }
+            }
+            body = new String(bodyBytes, bodyCharset());
+        }
         return body;
     }
 
+    /**
+     * @return the maximum number of body bytes accepted for this request
+     */
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
     public String getPath() {
         return path;
     }
 
+    // =========================
+    // PATH VARIABLES
+    // =========================
+
     public Map<String, String> getPathVariables() {
+        if (pathVariables == null) {
+            Map<String, String> variables = new HashMap<>();
+            for (int i = 0; i < variableNames.length; i++) {
+                variables.put(variableNames[i], variableValues[i]);
+            }
+            pathVariables = variables;
+        }
         return pathVariables;
     }
 
+    /**
+     * @return the raw value of a path variable, or null if the route has no such variable
+     */
+    public String getPathVariable(String name) {
+        for (int i = 0; i < variableNames.length; i++) {
+            if (variableNames[i].equals(name)) {
+                return variableValues[i];
+            }
+        }
+        return pathVariables != null ? pathVariables.get(name) : null;
+    }
+
+    /**
+     * @param index the position of the variable in the route pattern
+     * @return the raw value, or null if there is no such variable
+     */
+    public String getPathVariable(int index) {
+        return index < variableValues.length ? variableValues[index] : null;
+    }
+
+    // =========================
+    // QUERY PARAMETERS
+    // =========================
+
+    /**
+     * @return the first value of each query parameter
+     */
     public Map<String, String> getQueryParams() {
+        if (queryParams == null) {
+            Map<String, String> first = new HashMap<>();
+            queryParamValues().forEach((name, values) -> first.put(name, values.get(0)));
+            queryParams = first;
+        }
         return queryParams;
     }
 
-    public HttpExchange getExchange() {
+    /**
+     * @return the first value of a query parameter, or null if it is absent
+     */
+    public String getQueryParam(String name) {
+        List<String> values = queryParamValues().get(name);
+        return values != null ? values.get(0) : null;
+    }
+
+    /**
+     * @return every value of a repeated query parameter, in order; empty if it is absent
+     */
+    public List<String> getQueryParamValues(String name) {
+        return queryParamValues().getOrDefault(name, List.of());
+    }
+
+    private Map<String, List<String>> queryParamValues() {
+        if (queryParamValues == null) {
+            queryParamValues = exchange != null ? QueryParamsUtils.parseAll(exchange) : Map.of();
+        }
+        return queryParamValues;
+    }
+
+    // =========================
+    // HEADERS
+    // =========================
+
+    /**
+     * @return the first value of a request header, or null if it is absent
+     */
+    public String getHeader(String name) {
+        if (headers != null) {
+            return headers.get(name.toLowerCase());
+        }
+        return exchange != null ? exchange.getRequestHeader(name) : null;
+    }
+
+    /**
+     * @return the first value of each header; lookups ignore case, iteration yields lower-case names
+     */
+    public Map<String, String> getHeaders() {
+        if (headers == null) {
+            headers = new HeaderView(exchange);
+        }
+        return headers;
+    }
+
+    public ServerExchange getExchange() {
         return exchange;
     }
 
     public void setAttribute(String key, Object value) {
+        if (attributes == null) {
+            attributes = new HashMap<>();
+        }
         attributes.put(key, value);
     }
 
     public Object getAttribute(String key) {
-        return attributes.get(key);
+        return attributes != null ? attributes.get(key) : null;
     }
 
-    public Map<String, String> getHeaders() {
-        return headers;
+    // =========================
+    // REQUEST-SCOPED COMPONENTS
+    // =========================
+
+    /**
+     * @return the instance of a {@code @Scope("request")} component created for this request, or null
+     */
+    public Object getScopedBean(Class<?> type) {
+        return scopedBeans != null ? scopedBeans.get(type) : null;
+    }
+
+    public void setScopedBean(Class<?> type, Object instance) {
+        if (scopedBeans == null) {
+            scopedBeans = new HashMap<>(4);
+        }
+        scopedBeans.put(type, instance);
+    }
+
+    private Charset bodyCharset() {
+        String contentType = getHeader("Content-Type");
+        if (contentType != null) {
+            int index = contentType.toLowerCase().indexOf("charset=");
+            if (index >= 0) {
+                String name = contentType.substring(index + 8).split(";")[0].trim().replace("\"", "");
+                try {
+                    return Charset.forName(name);
+                } catch (IllegalArgumentException ignored) {
+                    // Unknown charset: fall back to UTF-8
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Read-only view of the request headers. Lookups go straight to the transport, which
+     * already matches names case-insensitively; a lower-cased copy is only made if the
+     * view is iterated.
+     */
+    private static final class HeaderView extends AbstractMap<String, String> {
+
+        private final ServerExchange exchange;
+        private Map<String, String> copy;
+
+        HeaderView(ServerExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        @Override
+        public String get(Object key) {
+            return key instanceof String name && exchange != null ? exchange.getRequestHeader(name) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            if (copy == null) {
+                Map<String, String> lowerCase = new HashMap<>();
+                if (exchange != null) {
+                    exchange.getRequestHeaders().forEach((name, values) -> {
+                        if (!values.isEmpty()) {
+                            lowerCase.put(name.toLowerCase(), values.get(0));
+                        }
+                    });
+                }
+                copy = Map.copyOf(lowerCase);
+            }
+            return copy.entrySet();
+        }
     }
 }
@@ -0,0 +1,178 @@
+package com.abidev.processor;
+
+import com.abidev.framework.ComponentIndex;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static com.abidev.framework.ComponentIndex.ADVICE;
+import static com.abidev.framework.ComponentIndex.COMPONENT;
+import static com.abidev.framework.ComponentIndex.INDEX;
+import static com.abidev.framework.ComponentIndex.INTERCEPTOR;
+import static com.abidev.framework.ComponentIndex.ROUTES;
+import static com.abidev.framework.ComponentIndex.VALIDATOR;
+
+/**
+ * Writes the {@link ComponentIndex} at compile time: every class the framework's scan would
+ * pick up, with what it was found for. At startup the framework reads the index instead of
+ * walking the classpath and loading every class.
+ * <p>
+ * The processor only refers to the framework's annotations by name, so it can be compiled
+ * before them. The index path and kinds come from {@link ComponentIndex}, which depends on
+ * nothing else in the framework.
+ */
+@SupportedAnnotationTypes("*")
+public class ComponentIndexProcessor extends AbstractProcessor {
+
+    private static final String COMPONENT_ANNOTATION = "com.abidev.annotations.Component";
+    private static final String ROUTE_ANNOTATION = "com.abidev.annotations.Route";
+    private static final String ADVICE_ANNOTATION = "com.abidev.annotations.ControllerAdvice";
+    private static final String CONSTRAINT_ANNOTATION = "com.abidev.annotations.validation.Constraint";
+    private static final String INTERCEPTOR_TYPE = "com.abidev.middleware.HandlerInterceptor";
+
+    // Class name -> kinds, sorted so the index is reproducible
+    private final Map<String, Set<String>> entries = new TreeMap<>();
+    private final Set<String> compiled = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (TypeElement type : ElementFilter.typesIn(round.getRootElements())) {
+            collect(type);
+        }
+        if (round.processingOver()) {
+            write();
+        }
+        // Other processors may want the same annotations
+        return false;
+    }
+
+    private void collect(TypeElement type) {
+        String name = processingEnv.getElementUtils().getBinaryName(type).toString();
+        compiled.add(name);
+
+        if (hasAnnotation(type, COMPONENT_ANNOTATION)) {
+            add(name, COMPONENT);
+            for (Element member : type.getEnclosedElements()) {
+                if (member.getKind() == ElementKind.METHOD && hasAnnotation(member, ROUTE_ANNOTATION)) {
+                    add(name, ROUTES);
+                    break;
+                }
+            }
+        }
+        if (hasAnnotation(type, ADVICE_ANNOTATION)) {
+            add(name, ADVICE);
+        }
+        if (hasAnnotation(type, CONSTRAINT_ANNOTATION)) {
+            add(name, VALIDATOR);
+        }
+        if (isInterceptor(type)) {
+            add(name, INTERCEPTOR);
+        }
+
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            collect(nested);
+        }
+    }
+
+    private boolean isInterceptor(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        Elements elements = processingEnv.getElementUtils();
+        TypeElement interceptor = elements.getTypeElement(INTERCEPTOR_TYPE);
+        if (interceptor == null) {
+            return false;
+        }
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror target = types.erasure(interceptor.asType());
+        return types.isAssignable(types.erasure(type.asType()), target);
+    }
+
+    private static boolean hasAnnotation(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(String className, String kind) {
+        entries.computeIfAbsent(className, k -> new TreeSet<>()).add(kind);
+    }
+
+    private void write() {
+        Filer filer = processingEnv.getFiler();
+        keepPreviousEntries(filer);
+
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+            try (Writer writer = file.openWriter()) {
+                for (Map.Entry<String, Set<String>> entry : entries.entrySet()) {
+                    for (String kind : entry.getValue()) {
+                        writer.write(kind + " " + entry.getKey() + "\n");
+                    }
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write " + INDEX + ": " + e);
+        }
+    }
+
+    /**
+     * An incremental build only compiles the changed sources: keep the entries of the previous
+     * index whose classes still exist and were not compiled again in this build.
+     */
+    private void keepPreviousEntries(Filer filer) {
+        Elements elements = processingEnv.getElementUtils();
+        try {
+            FileObject previous = filer.getResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+            try (Reader reader = previous.openReader(true);
+                 BufferedReader lines = new BufferedReader(reader)) {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    int space = line.indexOf(' ');
+                    if (space <= 0) {
+                        continue;
+                    }
+                    String className = line.substring(space + 1);
+                    if (!compiled.contains(className)
+                            && elements.getTypeElement(className.replace('$', '.')) != null) {
+                        add(className, line.substring(0, space));
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // No previous index: this is a full build
+        }
+    }
+}
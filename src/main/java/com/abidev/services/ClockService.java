@@ -0,0 +1,64 @@
+package com.abidev.services;
+
+import com.abidev.annotations.Component;
+import com.abidev.annotations.Scope;
+import com.abidev.http.sse.SseBroadcaster;
+import com.abidev.http.sse.SseEmitter;
+import com.abidev.http.sse.SseEvent;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes the current time to every subscriber once per second. The clock runs until the
+ * framework is closed.
+ */
+@Component
+@Scope(Scope.SINGLETON)
+public class ClockService implements AutoCloseable {
+
+    private final SseBroadcaster broadcaster;
+    private final ScheduledExecutorService scheduler;
+    private long sequence;
+
+    public ClockService(SseBroadcaster broadcaster) {
+        this.broadcaster = broadcaster;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "abi-clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::tick, 1, 1, TimeUnit.SECONDS);
+    }
+
+    public SseEmitter subscribe() {
+        return broadcaster.subscribe();
+    }
+
+    public SseBroadcaster getBroadcaster() {
+        return broadcaster;
+    }
+
+    /**
+     * Stops the clock; subscribers stay connected but receive no more ticks.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void tick() {
+        if (broadcaster.getSubscriberCount() == 0) {
+            return;
+        }
+        long id = ++sequence;
+        broadcaster.send(SseEvent.builder()
+                .id(Long.toString(id))
+                .name("tick")
+                .data(new Tick(System.currentTimeMillis(), broadcaster.getSubscriberCount()))
+                .build());
+    }
+
+    public record Tick(long timestamp, int subscribers) {}
+}
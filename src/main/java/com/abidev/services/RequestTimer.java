@@ -4,7 +4,7 @@ import com.abidev.annotations.Component;
 import com.abidev.annotations.Scope;
 
 @Component
-@Scope(Scope.PROTOTYPE)
+@Scope(Scope.REQUEST)
 public class RequestTimer {
 
     private long timestamp = System.currentTimeMillis();
@@ -0,0 +1,72 @@
+package com.abidev.framework;
+
+import com.abidev.annotations.Lazy;
+import com.abidev.annotations.Scope;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BeanContainerTest {
+
+    @Scope(Scope.REQUEST)
+    static class CurrentUser {
+    }
+
+    @Lazy
+    static class LazyGreeter {
+        LazyGreeter(CurrentUser user) {
+        }
+    }
+
+    @Lazy
+    static class LazyProviderGreeter {
+        LazyProviderGreeter(Provider<CurrentUser> user) {
+        }
+    }
+
+    @Scope(Scope.PROTOTYPE)
+    static class UserView {
+        UserView(CurrentUser user) {
+        }
+    }
+
+    @Lazy
+    static class LazyViewHolder {
+        LazyViewHolder(UserView view) {
+        }
+    }
+
+    @Test
+    void lazySingletonCannotInjectRequestBean() throws Exception {
+        BeanContainer container = new BeanContainer();
+        container.register(CurrentUser.class);
+        container.register(LazyGreeter.class);
+        container.instantiateSingletons();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, container::freeze);
+        assertTrue(e.getMessage().contains("Provider<CurrentUser>"), e.getMessage());
+    }
+
+    @Test
+    void lazySingletonCannotInjectRequestBeanThroughPrototype() throws Exception {
+        BeanContainer container = new BeanContainer();
+        container.register(CurrentUser.class);
+        container.register(UserView.class);
+        container.register(LazyViewHolder.class);
+        container.instantiateSingletons();
+
+        assertThrows(IllegalStateException.class, container::freeze);
+    }
+
+    @Test
+    void lazySingletonMayInjectRequestBeanProvider() throws Exception {
+        BeanContainer container = new BeanContainer();
+        container.register(CurrentUser.class);
+        container.register(LazyProviderGreeter.class);
+        container.instantiateSingletons();
+
+        assertDoesNotThrow(container::freeze);
+    }
+}